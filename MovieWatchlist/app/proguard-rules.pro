@@ -18,4 +18,6 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+# Firestore maps documents to Movie by reflection (toObject / set)
+-keep class com.example.moviewatchlist.Movie { *; }
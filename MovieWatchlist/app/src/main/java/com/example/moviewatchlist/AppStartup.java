@@ -0,0 +1,164 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.bumptech.glide.Glide;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ AppStartup keeps the heavy SDKs off the path to the first frame.
+ - Firestore and Auth sit behind lazy providers, use firestore() / auth()
+   instead of getInstance()
+ - start() warms Firestore, the Auth token, OkHttp + Glide and the
+   MovieStore in parallel on background threads, so by the time a
+   screen asks 4 them they are ready (or it waits 4 the one being built)
+ - mark() records a timestamp per startup phase, relative to process start
+   adb logcat -s Startup
+*/
+public final class AppStartup {
+
+    private static final String TAG = "Startup";
+
+    /*
+     Built on the first get(), from any thread.
+     a second caller waits 4 the first instead of building another one.
+    */
+    public static final class Lazy<T> {
+        private final Supplier<T> factory;
+        private volatile T value;
+
+        Lazy(Supplier<T> factory) {
+            this.factory = factory;
+        }
+
+        public T get() {
+            T v = value;
+            if (v == null) {
+                synchronized (this) {
+                    v = value;
+                    if (v == null) {
+                        v = factory.get();
+                        value = v;
+                    }
+                }
+            }
+            return v;
+        }
+    }
+
+    private static final Lazy<FirebaseFirestore> FIRESTORE = new Lazy<>(FirebaseFirestore::getInstance);
+    private static final Lazy<FirebaseAuth> AUTH = new Lazy<>(FirebaseAuth::getInstance);
+
+    // phase -> ms since process start, in the order they happened
+    private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+    private static boolean started;
+
+    private AppStartup() { }
+
+    public static FirebaseFirestore firestore() {
+        return FIRESTORE.get();
+    }
+
+    public static FirebaseAuth auth() {
+        return AUTH.get();
+    }
+
+    /*
+     Called once from Application.onCreate, returns right away.
+    */
+    public static synchronized void start(Context context) {
+        if (started) {
+            return;
+        }
+        started = true;
+        mark("app.onCreate");
+
+        Context app = context.getApplicationContext();
+
+        warm("firestore", FIRESTORE::get);
+        warm("auth", () -> {
+            FirebaseUser user = AUTH.get().getCurrentUser();
+            if (user != null) {
+                user.getIdToken(false); // refreshes now if it is about to expire
+            }
+        });
+        warm("network", () -> {
+            TmdbClient.get(app);
+            Glide.get(app);
+        });
+        warm("store", () -> MovieStore.get(app));
+    }
+
+    /*
+     Records a startup phase, safe on any thread.
+     the first mark of a phase wins.
+    */
+    public static void mark(String phase) {
+        long ms = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        synchronized (phases) {
+            if (phases.containsKey(phase)) {
+                return;
+            }
+            phases.put(phase, ms);
+        }
+        Log.d(TAG, phase + " +" + ms + "ms");
+    }
+
+    /*
+     All phases so far, one per line.
+    */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (phases) {
+            for (Map.Entry<String, Long> e : phases.entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append('\n');
+                }
+                sb.append("startup.").append(e.getKey()).append(" +").append(e.getValue()).append("ms");
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     Marks the phase when the view's window draws its first frame,
+     then runs afterwards (deferred work that must not delay that frame).
+    */
+    public static void afterFirstFrame(View view, String phase, Runnable afterwards) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                mark(phase);
+                view.post(afterwards);
+                return true;
+            }
+        });
+    }
+
+    private static void warm(String name, Runnable task) {
+        Thread thread = new Thread(() -> {
+            // normal priority, the main thread may be waiting 4 it
+            try {
+                task.run();
+                mark("warm." + name);
+            } catch (RuntimeException e) {
+                // the lazy get() on the main thread will try again and report it
+                Log.w(TAG, "Warm-up failed: " + name, e);
+            }
+        }, "startup-" + name);
+        thread.start();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.moviewatchlist;
+
+import java.util.function.LongSupplier;
+
+/*
+ Circuit breaker 4 a remote service.
+ - CLOSED: calls go through, failuresToOpen failures in a row open it
+ - OPEN: calls fail fast (allowRequest() is false) 4 openMillis
+ - HALF_OPEN: then one trial call goes through, success closes it,
+   failure opens it again
+ callers report every call they were allowed to make: onSuccess,
+ onFailure, or onAbandoned (canceled, the answer says nothing).
+ thread safe, plain java.
+*/
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failuresToOpen;
+    private final long openNanos;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialRunning;
+
+    public CircuitBreaker(int failuresToOpen, long openMillis) {
+        this(failuresToOpen, openMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(int failuresToOpen, long openMillis, LongSupplier clock) {
+        this.failuresToOpen = failuresToOpen;
+        this.openNanos = openMillis * 1_000_000L;
+        this.clock = clock;
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialRunning = false;
+        }
+        // half open, one trial at a time
+        if (trialRunning) {
+            return false;
+        }
+        trialRunning = true;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialRunning = false;
+    }
+
+    public synchronized void onFailure() {
+        trialRunning = false;
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failuresToOpen) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized void onAbandoned() {
+        trialRunning = false;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/*
+ Adds TMDB details (year, runtime, genres) to watchlist and top N rows.
+ - bind() shows them under the title, from memory if we have them,
+   else the movie is queued and the row is filled in when they arrive
+ - rows on screen (bind) go to the front of the queue,
+   prefetch() puts the rest of a list at the back
+ - at most MAX_PARALLEL movies are fetched at a time
+ - each movie is read from the movie_details table first, TMDB is only
+   asked when it is not there or older than TTL_MILLIS (stale details
+   are shown while the new ones load), the http cache has its own max-age
+ - a movie that failed is not queued again until its retry time: 30 s,
+   doubling per failure up to an hour, a day if TMDB has no such movie (404).
+   so an offline or unknown movie is not asked 4 on every bind
+ queue depth, fetched / failed counts and fetch times are in Metrics.report().
+ android only in bind() / get(), the rest runs on a plain jvm (DetailsEnricherTest).
+*/
+public class DetailsEnricher {
+
+    static final int MAX_PARALLEL = 4;
+    static final long TTL_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final int MEMORY_SIZE = 500;
+
+    static final long RETRY_MIN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long RETRY_MAX_MILLIS = TimeUnit.HOURS.toMillis(1);
+    static final long NOT_FOUND_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int MAX_FAILURES = 500;
+
+    private static volatile DetailsEnricher instance;
+
+    private final TmdbClient tmdb;
+    private final MovieDao dao;
+    private final Executor io;
+    private final Executor main;
+    private final LongSupplier clock;
+
+    // tmdbId -> details, the most recently used ones. guarded by itself
+    private final Map<String, MovieDetails> memory = new LinkedHashMap<String, MovieDetails>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MovieDetails> eldest) {
+            return size() > MEMORY_SIZE;
+        }
+    };
+
+    // text view -> tmdbId it shows, main thread only
+    private final Map<TextView, String> targets = new WeakHashMap<>();
+
+    // guarded by queue
+    private final Deque<String> queue = new ArrayDeque<>();
+    private final Set<String> pending = new HashSet<>();
+    private int running;
+    private int maxQueued;
+
+    // tmdbId -> {retry at, last wait}, the most recent failures only
+    private final Map<String, long[]> failures = new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+            return size() > MAX_FAILURES;
+        }
+    };
+
+    private final AtomicLong fetched = new AtomicLong();
+    private final AtomicLong fromDisk = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public static DetailsEnricher get(Context context) {
+        if (instance == null) {
+            synchronized (DetailsEnricher.class) {
+                if (instance == null) {
+                    Context app = context.getApplicationContext();
+                    instance = new DetailsEnricher(
+                            TmdbClient.get(app),
+                            MovieDatabase.get(app).movieDao(),
+                            Executors.newSingleThreadExecutor(),
+                            new Handler(Looper.getMainLooper())::post,
+                            System::currentTimeMillis);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /*
+     Package private 4 a TmdbClient on a MockWebServer and a test dao.
+     main runs the view updates (the main thread's Handler in the app).
+    */
+    DetailsEnricher(TmdbClient tmdb, MovieDao dao, Executor io, Executor main, LongSupplier clock) {
+        this.tmdb = tmdb;
+        this.dao = dao;
+        this.io = io;
+        this.main = main;
+        this.clock = clock;
+    }
+
+    /*
+     Shows the details of movie in view, now or when they arrive.
+     main thread, call from onBindViewHolder.
+    */
+    public void bind(TextView view, Movie movie) {
+        String id = movie.getTmdbId();
+        targets.put(view, id);
+
+        MovieDetails details = id != null ? remembered(id) : null;
+        show(view, details);
+
+        if (id != null && (details == null || details.isExpired(clock.getAsLong(), TTL_MILLIS))) {
+            request(id, true);
+        }
+    }
+
+    /*
+     Queues the movies of a list behind the visible rows, any thread.
+    */
+    public void prefetch(List<Movie> movies) {
+        long now = clock.getAsLong();
+        for (Movie m : movies) {
+            String id = m.getTmdbId();
+            MovieDetails details = id != null ? remembered(id) : null;
+            if (id != null && (details == null || details.isExpired(now, TTL_MILLIS))) {
+                request(id, false);
+            }
+        }
+    }
+
+    /*
+     One line 4 Metrics.report(), empty if nothing was asked yet.
+    */
+    static String report() {
+        DetailsEnricher enricher = instance;
+        if (enricher == null) {
+            return "";
+        }
+        synchronized (enricher.queue) {
+            return "details queued=" + enricher.queue.size()
+                    + " maxQueued=" + enricher.maxQueued
+                    + " running=" + enricher.running
+                    + " fetched=" + enricher.fetched.get()
+                    + " fromDisk=" + enricher.fromDisk.get()
+                    + " failed=" + enricher.failed.get();
+        }
+    }
+
+    /*
+     Queues id, at the front 4 a row on screen. bind() without the view.
+    */
+    void request(String id, boolean visible) {
+        synchronized (queue) {
+            long[] failure = failures.get(id);
+            if (failure != null && clock.getAsLong() < failure[0]) {
+                return; // failed not long ago
+            }
+            if (pending.contains(id)) {
+                // already queued, a row on screen moves it to the front
+                if (visible && queue.remove(id)) {
+                    queue.addFirst(id);
+                }
+                return;
+            }
+            pending.add(id);
+            if (visible) {
+                queue.addFirst(id);
+            } else {
+                queue.addLast(id);
+            }
+            maxQueued = Math.max(maxQueued, queue.size());
+        }
+        pump();
+    }
+
+    /*
+     Starts queued movies while fewer than MAX_PARALLEL are running.
+    */
+    private void pump() {
+        while (true) {
+            String id;
+            synchronized (queue) {
+                if (running >= MAX_PARALLEL || queue.isEmpty()) {
+                    return;
+                }
+                id = queue.pollFirst();
+                running++;
+            }
+            io.execute(() -> loadFromDisk(id));
+        }
+    }
+
+    private void loadFromDisk(String id) {
+        MovieDetailsRow row = dao.findDetails(id);
+        MovieDetails saved = row != null ? row.toDetails() : null;
+
+        if (saved != null) {
+            fromDisk.incrementAndGet();
+            deliver(saved);
+            if (!saved.isExpired(clock.getAsLong(), TTL_MILLIS)) {
+                done(id);
+                return;
+            }
+        }
+        fetch(id);
+    }
+
+    private void fetch(String id) {
+        long start = System.nanoTime();
+
+        tmdb.newDetailsCall(id).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                fail(id, false);
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                MovieDetails details = null;
+                try (ResponseBody body = response.body()) {
+                    if (response.isSuccessful() && body != null) {
+                        details = TmdbMovieParser.parseDetails(body.charStream(), clock.getAsLong());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    details = null;
+                }
+                Metrics.DETAILS_FETCH.recordSince(start);
+
+                if (details == null) {
+                    fail(id, response.code() == 404);
+                    return;
+                }
+
+                synchronized (queue) {
+                    failures.remove(id);
+                }
+                fetched.incrementAndGet();
+                MovieDetails fresh = details;
+                io.execute(() -> dao.upsertDetails(MovieDetailsRow.from(fresh)));
+                deliver(fresh);
+                done(id);
+            }
+        });
+    }
+
+    /*
+     Remembers when id may be asked 4 again, then done.
+    */
+    private void fail(String id, boolean notFound) {
+        failed.incrementAndGet();
+        synchronized (queue) {
+            long[] last = failures.get(id);
+            long wait = notFound ? NOT_FOUND_MILLIS
+                    : last == null ? RETRY_MIN_MILLIS
+                    : Math.min(RETRY_MAX_MILLIS, last[1] * 2);
+            failures.put(id, new long[]{clock.getAsLong() + wait, wait});
+        }
+        done(id);
+    }
+
+    private void done(String id) {
+        synchronized (queue) {
+            pending.remove(id);
+            running--;
+        }
+        pump();
+    }
+
+    /*
+     Into memory, then into every view that still shows this movie.
+    */
+    private void deliver(MovieDetails details) {
+        synchronized (memory) {
+            memory.put(details.tmdbId, details);
+        }
+        main.execute(() -> {
+            for (Map.Entry<TextView, String> target : targets.entrySet()) {
+                if (details.tmdbId.equals(target.getValue())) {
+                    show(target.getKey(), details);
+                }
+            }
+        });
+    }
+
+    MovieDetails remembered(String id) {
+        synchronized (memory) {
+            return memory.get(id);
+        }
+    }
+
+    // nothing queued or running
+    boolean isIdle() {
+        synchronized (queue) {
+            return running == 0 && queue.isEmpty();
+        }
+    }
+
+    long getFetched() {
+        return fetched.get();
+    }
+
+    long getFailed() {
+        return failed.get();
+    }
+
+    // an empty line until they arrive, so the row height does not jump
+    private static void show(TextView view, MovieDetails details) {
+        view.setText(details != null ? details.summary() : "");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.moviewatchlist;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ LeaderboardService.Source on movies/ ordered by score,
+ a snapshot listener, callbacks on the main thread.
+*/
+public class FirestoreLeaderboardSource implements LeaderboardService.Source {
+
+    private final FirebaseFirestore db;
+
+    public FirestoreLeaderboardSource(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public LeaderboardService.Registration listen(int limit, LeaderboardService.Sink sink) {
+        return db.collection(ShardedRatingCounter.MOVIES)
+                .orderBy(RankingEngine.FIELD_SCORE, Query.Direction.DESCENDING)
+                .limit(limit)
+                .addSnapshotListener((snapshots, e) -> {
+                    if (e != null) {
+                        sink.onError(e);
+                        return;
+                    }
+                    if (snapshots == null) {
+                        return;
+                    }
+
+                    List<Movie> movies = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        Movie movie = doc.toObject(Movie.class);
+                        if (movie != null) {
+                            movies.add(movie);
+                        }
+                    }
+                    sink.onTop(movies, !snapshots.getMetadata().isFromCache());
+                })::remove;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.moviewatchlist;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ ShardedRatingCounter.Store on the app's firestore.
+ transaction time and retries go to Metrics.
+ blocks on the firestore tasks, never call it on the main thread.
+*/
+public class FirestoreRatingStore implements ShardedRatingCounter.Store {
+
+    private final FirebaseFirestore db;
+
+    public FirestoreRatingStore(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public Map<String, Object> get(String path) throws IOException {
+        DocumentSnapshot doc = await(db.document(path).get());
+        return doc.exists() ? doc.getData() : null;
+    }
+
+    @Override
+    public List<Map<String, Object>> list(String collectionPath) throws IOException {
+        List<Map<String, Object>> docs = new ArrayList<>();
+        for (DocumentSnapshot doc : await(db.collection(collectionPath).get()).getDocuments()) {
+            docs.add(doc.getData());
+        }
+        return docs;
+    }
+
+    @Override
+    public <T> T inTransaction(ShardedRatingCounter.Work<T> work) throws IOException {
+        long start = System.nanoTime();
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            return await(db.runTransaction((Transaction.Function<T>) transaction -> {
+                Metrics.transactionAttempt(attempts.incrementAndGet());
+                try {
+                    return work.run(new Tx(db, transaction));
+                } catch (IOException e) {
+                    if (e.getCause() instanceof FirebaseFirestoreException) {
+                        throw (FirebaseFirestoreException) e.getCause(); // a read, firestore knows if it may retry
+                    }
+                    throw new FirebaseFirestoreException(String.valueOf(e.getMessage()),
+                            FirebaseFirestoreException.Code.UNKNOWN, e);
+                }
+            }));
+        } finally {
+            Metrics.RATING_TRANSACTION.recordSince(start);
+        }
+    }
+
+    private static final class Tx implements ShardedRatingCounter.Tx {
+        private final FirebaseFirestore db;
+        private final Transaction transaction;
+
+        Tx(FirebaseFirestore db, Transaction transaction) {
+            this.db = db;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public Map<String, Object> get(String path) throws IOException {
+            try {
+                DocumentSnapshot doc = transaction.get(db.document(path));
+                return doc.exists() ? doc.getData() : null;
+            } catch (FirebaseFirestoreException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void set(String path, Map<String, Object> fields) {
+            transaction.set(db.document(path), values(fields));
+        }
+
+        @Override
+        public void merge(String path, Map<String, Object> fields) {
+            transaction.set(db.document(path), values(fields), SetOptions.merge());
+        }
+
+        @Override
+        public void add(String path, Map<String, Number> deltas) {
+            Map<String, Object> fields = new HashMap<>();
+            for (Map.Entry<String, Number> e : deltas.entrySet()) {
+                Number by = e.getValue();
+                fields.put(e.getKey(), by instanceof Double || by instanceof Float
+                        ? FieldValue.increment(by.doubleValue())
+                        : FieldValue.increment(by.longValue()));
+            }
+            transaction.set(db.document(path), fields, SetOptions.merge());
+        }
+    }
+
+    // SERVER_TIME -> the firestore sentinel
+    private static Map<String, Object> values(Map<String, Object> fields) {
+        Map<String, Object> values = new HashMap<>(fields);
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            if (e.getValue() == ShardedRatingCounter.SERVER_TIME) {
+                e.setValue(FieldValue.serverTimestamp());
+            }
+        }
+        return values;
+    }
+
+    private static <T> T await(Task<T> task) throws IOException {
+        try {
+            return Tasks.await(task);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
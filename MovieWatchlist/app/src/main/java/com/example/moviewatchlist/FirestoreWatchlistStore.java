@@ -0,0 +1,139 @@
+package com.example.moviewatchlist;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/*
+ WatchlistTransfer.Store on users/{uid}/watchlist.
+ blocks on the firestore tasks, never call it on the main thread.
+*/
+public class FirestoreWatchlistStore implements WatchlistTransfer.Store {
+
+    private final FirebaseFirestore db;
+    private final CollectionReference watchlist;
+
+    public FirestoreWatchlistStore(FirebaseFirestore db, String userId) {
+        this.db = db;
+        this.watchlist = db.collection("users").document(userId).collection("watchlist");
+    }
+
+    @Override
+    public List<Movie> readPage(String afterId, int limit) throws IOException {
+        Query query = watchlist.orderBy(FieldPath.documentId()).limit(limit);
+        if (afterId != null) {
+            query = query.startAfter(afterId);
+        }
+
+        QuerySnapshot snapshot = await(query.get());
+        List<Movie> movies = new ArrayList<>(snapshot.size());
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            Movie movie = doc.toObject(Movie.class);
+            if (movie != null) {
+                movie.setTmdbId(doc.getId()); // the id is the document id
+                movies.add(movie);
+            }
+        }
+        return movies;
+    }
+
+    /*
+     One WriteBatch with the rows and the WatchlistSummary difference.
+     a row already there is merged (WatchlistTransfer.merge), not replaced,
+     so the befores are needed: one pass over the local cache, the rows it
+     does not have are asked from the server all at once (not one by one).
+     a row seen twice counts once, the last one wins.
+     waits 4 the server's answer, unless a row could not be read (offline):
+     the summary is dirty then and the batch goes out once online, waiting
+     would block the import until then.
+    */
+    @Override
+    public void writeBatch(List<Movie> movies) throws IOException {
+        Map<String, Movie> byId = new LinkedHashMap<>();
+        for (Movie m : movies) {
+            byId.put(m.getTmdbId(), m);
+        }
+
+        List<DocumentReference> refs = new ArrayList<>();
+        for (Movie m : byId.values()) {
+            refs.add(watchlist.document(m.getTmdbId()));
+        }
+        List<Movie> rows = new ArrayList<>(byId.values());
+
+        List<DocumentSnapshot> befores = await(WatchlistSummary.cached(refs));
+        Map<Integer, Task<DocumentSnapshot>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < refs.size(); i++) {
+            if (befores.get(i) == null) {
+                missing.put(i, refs.get(i).get(Source.SERVER));
+            }
+        }
+        await(Tasks.whenAllComplete(missing.values()));
+        for (Map.Entry<Integer, Task<DocumentSnapshot>> e : missing.entrySet()) {
+            if (e.getValue().isSuccessful()) {
+                befores.set(e.getKey(), e.getValue().getResult());
+            }
+        }
+        boolean dirty = befores.contains(null);
+        List<Map<String, Object>> afters = merged(rows, befores);
+
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < refs.size(); i++) {
+            batch.set(refs.get(i), afters.get(i), SetOptions.merge());
+        }
+        for (Map.Entry<DocumentReference, Map<String, Object>> e
+                : WatchlistSummary.increments(refs, befores, afters, dirty).entrySet()) {
+            batch.set(e.getKey(), e.getValue(), SetOptions.merge());
+        }
+        Task<Void> commit = batch.commit();
+        if (!dirty) {
+            await(commit);
+        }
+    }
+
+    private static List<Map<String, Object>> merged(List<Movie> rows, List<DocumentSnapshot> befores) {
+        List<Map<String, Object>> afters = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            afters.add(merged(rows.get(i), befores.get(i)));
+        }
+        return afters;
+    }
+
+    // WatchlistTransfer.merge() plus the timestamps, addedAt only 4 new rows
+    private static Map<String, Object> merged(Movie m, DocumentSnapshot before) {
+        boolean exists = before != null && before.exists();
+        Map<String, Object> data = WatchlistTransfer.merge(m, exists ? before.getData() : null);
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        if (!exists) {
+            data.put("addedAt", FieldValue.serverTimestamp());
+        }
+        return data;
+    }
+
+    private static <T> T await(Task<T> task) throws IOException {
+        try {
+            return Tasks.await(task);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.example.moviewatchlist;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Item to item similarity from star ratings, 4 "because you liked X".
+ - sim(i, j) = dot(i, j) / sqrt((|i|^2 + SHRINK) * (|j|^2 + SHRINK)), the cosine
+   over the users that rated both, SHRINK keeps movies with a handful of
+   ratings from looking identical to everything
+ - dot products are a sparse row per movie (int -> float, open addressing),
+   norms and ratings are primitive arrays, no boxing on the update path
+ - setRating() is incremental: a change of user u on movie i only touches
+   the pairs (i, j) 4 the movies j that u rated, O(ratings of u)
+ - each movie keeps its top K neighbours, neighbours() is an O(K) copy;
+   a movie whose row changed is marked dirty and its list is rebuilt
+   from its row on the next read
+ - a user keeps at most MAX_RATINGS_PER_USER ratings, the oldest one
+   is taken out (with its pairs) when a new one comes in
+ - takeChanged() lists the movies whose neighbours may have changed,
+   writeTo() / readFrom() keep the whole index between runs
+ synchronized, plain java. kept by the jobs (NeighborsJob), which publish
+ each movie's top K 4 the phones (see ItemSimilarityBenchmark).
+*/
+public class ItemSimilarityIndex {
+
+    static final int DEFAULT_K = 20;
+    static final int MAX_RATINGS_PER_USER = 200;
+    static final float SHRINK = 25f;
+
+    // bumped when the writeTo() format changes, readFrom() refuses others
+    static final int FORMAT = 1;
+
+    // below this a neighbour is noise (pairs left over after ratings were taken back)
+    private static final float MIN_SCORE = 1e-3f;
+
+    /*
+     int -> float hash map, open addressing with linear probing.
+     entries are never removed, a pair that goes back to 0 stays as 0.
+    */
+    static final class IntFloatMap {
+        private static final int FREE = -1;
+
+        int[] keys;
+        float[] values;
+        int size;
+
+        IntFloatMap() {
+            keys = new int[4];
+            Arrays.fill(keys, FREE);
+            values = new float[4];
+        }
+
+        void add(int key, float delta) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != FREE && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == FREE) {
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] += delta;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            float[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            Arrays.fill(keys, FREE);
+            values = new float[oldKeys.length * 2];
+            size = 0;
+            for (int s = 0; s < oldKeys.length; s++) {
+                if (oldKeys[s] != FREE) {
+                    add(oldKeys[s], oldValues[s]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // one user's ratings, oldest first
+    private static final class UserRatings {
+        int[] items = new int[4];
+        float[] stars = new float[4];
+        int size;
+
+        int indexOf(int item) {
+            for (int p = 0; p < size; p++) {
+                if (items[p] == item) {
+                    return p;
+                }
+            }
+            return -1;
+        }
+
+        void add(int item, float value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                stars = Arrays.copyOf(stars, size * 2);
+            }
+            items[size] = item;
+            stars[size] = value;
+            size++;
+        }
+
+        void removeAt(int p) {
+            System.arraycopy(items, p + 1, items, p, size - p - 1);
+            System.arraycopy(stars, p + 1, stars, p, size - p - 1);
+            size--;
+        }
+    }
+
+    /*
+     A similar movie and how similar (0..1).
+    */
+    public static final class Neighbor {
+        public final String tmdbId;
+        public final float score;
+
+        Neighbor(String tmdbId, float score) {
+            this.tmdbId = tmdbId;
+            this.score = score;
+        }
+    }
+
+    private final int k;
+
+    private final Map<String, Integer> itemIds = new HashMap<>();
+    private final List<String> itemNames = new ArrayList<>();
+    private final Map<String, UserRatings> users = new HashMap<>();
+
+    // per item, indexed by item id
+    private IntFloatMap[] dots = new IntFloatMap[16];
+    private double[] normSq = new double[16];
+    private int[][] topItems = new int[16][];
+    private float[][] topScores = new float[16][];
+    private final BitSet dirty = new BitSet();
+
+    // items whose row or norm changed since the last takeChanged()
+    private final BitSet changed = new BitSet();
+
+    public ItemSimilarityIndex() {
+        this(DEFAULT_K);
+    }
+
+    public ItemSimilarityIndex(int k) {
+        this.k = k;
+    }
+
+    public synchronized int itemCount() {
+        return itemNames.size();
+    }
+
+    /*
+     Sets (or changes) a user's stars 4 a movie, 0 takes the rating back.
+    */
+    public synchronized void setRating(String userId, String tmdbId, float stars) {
+        UserRatings user = users.get(userId);
+        if (user == null) {
+            if (stars <= 0) {
+                return;
+            }
+            user = new UserRatings();
+            users.put(userId, user);
+        }
+
+        int item = itemId(tmdbId);
+        int at = user.indexOf(item);
+        float old = at >= 0 ? user.stars[at] : 0;
+        if (stars <= 0) {
+            stars = 0;
+        }
+        if (stars == old) {
+            return;
+        }
+
+        // the oldest goes first, so its pairs with the new movie are never made
+        if (at < 0 && user.size == MAX_RATINGS_PER_USER) {
+            int oldest = user.items[0];
+            float oldestStars = user.stars[0];
+            user.removeAt(0);
+            change(user, oldest, oldestStars, 0);
+        }
+
+        change(user, item, old, stars);
+        if (at >= 0) {
+            if (stars == 0) {
+                user.removeAt(at);
+            } else {
+                user.stars[at] = stars;
+            }
+            return;
+        }
+        user.add(item, stars);
+    }
+
+    /*
+     Makes the user's ratings exactly these (tmdbId -> stars, oldest first):
+     movies not in it are taken back, the rest set in that order.
+     nothing changes 4 ratings that are already so.
+    */
+    public synchronized void setRatings(String userId, LinkedHashMap<String, Float> ratings) {
+        UserRatings user = users.get(userId);
+        if (user != null) {
+            List<String> gone = new ArrayList<>();
+            for (int p = 0; p < user.size; p++) {
+                String tmdbId = itemNames.get(user.items[p]);
+                if (!ratings.containsKey(tmdbId)) {
+                    gone.add(tmdbId);
+                }
+            }
+            for (String tmdbId : gone) {
+                setRating(userId, tmdbId, 0);
+            }
+        }
+        for (Map.Entry<String, Float> e : ratings.entrySet()) {
+            setRating(userId, e.getKey(), e.getValue());
+        }
+        user = users.get(userId);
+        if (user != null && user.size == 0) {
+            users.remove(userId);
+        }
+    }
+
+    /*
+     The movies whose neighbours may be different since the last call
+     (their own ratings or a similar movie's changed), then forgets them.
+    */
+    public synchronized List<String> takeChanged() {
+        List<String> result = new ArrayList<>(changed.cardinality());
+        for (int item = changed.nextSetBit(0); item >= 0; item = changed.nextSetBit(item + 1)) {
+            result.add(itemNames.get(item));
+        }
+        changed.clear();
+        return result;
+    }
+
+    /*
+     The K most similar movies, best first. O(K) unless the movie changed
+     since the last call, then its row is read once to rebuild the list.
+    */
+    public synchronized List<Neighbor> neighbors(String tmdbId) {
+        Integer item = itemIds.get(tmdbId);
+        if (item == null) {
+            return new ArrayList<>();
+        }
+        refresh(item);
+
+        int[] ids = topItems[item];
+        float[] scores = topScores[item];
+        List<Neighbor> result = new ArrayList<>(ids.length);
+        for (int n = 0; n < ids.length; n++) {
+            result.add(new Neighbor(itemNames.get(ids[n]), scores[n]));
+        }
+        return result;
+    }
+
+    /*
+     Movies 4 a user: neighbours of what they rated, weighted by
+     similarity * stars, without the movies they already rated.
+    */
+    public synchronized List<Neighbor> recommend(String userId, int limit) {
+        UserRatings user = users.get(userId);
+        if (user == null) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, float[]> scores = new HashMap<>();
+        for (int p = 0; p < user.size; p++) {
+            int item = user.items[p];
+            refresh(item);
+            for (int n = 0; n < topItems[item].length; n++) {
+                int candidate = topItems[item][n];
+                if (user.indexOf(candidate) >= 0) {
+                    continue;
+                }
+                float[] score = scores.get(candidate);
+                if (score == null) {
+                    score = new float[1];
+                    scores.put(candidate, score);
+                }
+                score[0] += topScores[item][n] * user.stars[p];
+            }
+        }
+
+        List<Neighbor> result = new ArrayList<>(scores.size());
+        for (Map.Entry<Integer, float[]> e : scores.entrySet()) {
+            result.add(new Neighbor(itemNames.get(e.getKey()), e.getValue()[0]));
+        }
+        result.sort((a, b) -> Float.compare(b.score, a.score));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /*
+     Moves the user's rating of item from old to stars: the pairs with the
+     user's other movies and the item's norm. the user row is not changed here.
+    */
+    private void change(UserRatings user, int item, float old, float stars) {
+        float delta = stars - old;
+        for (int p = 0; p < user.size; p++) {
+            int other = user.items[p];
+            if (other == item) {
+                continue;
+            }
+            float d = delta * user.stars[p];
+            row(item).add(other, d);
+            row(other).add(item, d);
+            dirty.set(other);
+            changed.set(other);
+        }
+        normSq[item] += (double) stars * stars - (double) old * old;
+        dirty.set(item);
+        changed.set(item);
+    }
+
+    /*
+     Rebuilds the top K of a dirty item from its row.
+    */
+    private void refresh(int item) {
+        if (!dirty.get(item) && topItems[item] != null) {
+            return;
+        }
+        dirty.clear(item);
+
+        int[] ids = new int[k];
+        float[] scores = new float[k];
+        int count = 0;
+
+        IntFloatMap row = dots[item];
+        if (row != null) {
+            double norm = normSq[item] + SHRINK;
+            for (int s = 0; s < row.keys.length; s++) {
+                int other = row.keys[s];
+                if (other == IntFloatMap.FREE) {
+                    continue;
+                }
+                float score = (float) (row.values[s] / Math.sqrt(norm * (normSq[other] + SHRINK)));
+                if (score < MIN_SCORE || (count == k && score <= scores[k - 1])) {
+                    continue;
+                }
+
+                // insertion into the sorted top k
+                int at = count < k ? count++ : k - 1;
+                while (at > 0 && scores[at - 1] < score) {
+                    ids[at] = ids[at - 1];
+                    scores[at] = scores[at - 1];
+                    at--;
+                }
+                ids[at] = other;
+                scores[at] = score;
+            }
+        }
+
+        topItems[item] = Arrays.copyOf(ids, count);
+        topScores[item] = Arrays.copyOf(scores, count);
+    }
+
+    /*
+     Everything but the top K lists (rebuilt on read) and the changed set.
+    */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeInt(FORMAT);
+        out.writeInt(k);
+
+        int items = itemNames.size();
+        out.writeInt(items);
+        for (int item = 0; item < items; item++) {
+            out.writeUTF(itemNames.get(item));
+            out.writeDouble(normSq[item]);
+            IntFloatMap row = dots[item];
+            out.writeInt(row != null ? row.size : 0);
+            if (row != null) {
+                for (int s = 0; s < row.keys.length; s++) {
+                    if (row.keys[s] != IntFloatMap.FREE) {
+                        out.writeInt(row.keys[s]);
+                        out.writeFloat(row.values[s]);
+                    }
+                }
+            }
+        }
+
+        out.writeInt(users.size());
+        for (Map.Entry<String, UserRatings> e : users.entrySet()) {
+            UserRatings user = e.getValue();
+            out.writeUTF(e.getKey());
+            out.writeInt(user.size);
+            for (int p = 0; p < user.size; p++) {
+                out.writeInt(user.items[p]);
+                out.writeFloat(user.stars[p]);
+            }
+        }
+    }
+
+    /*
+     An index as writeTo() left it, throws if the format is not FORMAT.
+    */
+    public static ItemSimilarityIndex readFrom(DataInput in) throws IOException {
+        int format = in.readInt();
+        if (format != FORMAT) {
+            throw new IOException("similarity index format " + format + ", expected " + FORMAT);
+        }
+        ItemSimilarityIndex index = new ItemSimilarityIndex(in.readInt());
+
+        int items = in.readInt();
+        for (int item = 0; item < items; item++) {
+            index.itemId(in.readUTF());
+            index.normSq[item] = in.readDouble();
+            int pairs = in.readInt();
+            for (int n = 0; n < pairs; n++) {
+                index.row(item).add(in.readInt(), in.readFloat());
+            }
+            index.dirty.set(item);
+        }
+
+        int users = in.readInt();
+        for (int u = 0; u < users; u++) {
+            String userId = in.readUTF();
+            UserRatings user = new UserRatings();
+            int size = in.readInt();
+            for (int p = 0; p < size; p++) {
+                user.add(in.readInt(), in.readFloat());
+            }
+            index.users.put(userId, user);
+        }
+        return index;
+    }
+
+    private IntFloatMap row(int item) {
+        IntFloatMap row = dots[item];
+        if (row == null) {
+            row = new IntFloatMap();
+            dots[item] = row;
+        }
+        return row;
+    }
+
+    private int itemId(String tmdbId) {
+        Integer id = itemIds.get(tmdbId);
+        if (id != null) {
+            return id;
+        }
+
+        int next = itemNames.size();
+        if (next == dots.length) {
+            int size = next * 2;
+            dots = Arrays.copyOf(dots, size);
+            normSq = Arrays.copyOf(normSq, size);
+            topItems = Arrays.copyOf(topItems, size);
+            topScores = Arrays.copyOf(topScores, size);
+        }
+        itemIds.put(tmdbId, next);
+        itemNames.add(tmdbId);
+        return next;
+    }
+}
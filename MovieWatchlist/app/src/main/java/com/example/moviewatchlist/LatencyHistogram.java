@@ -0,0 +1,143 @@
+package com.example.moviewatchlist;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ LatencyHistogram counts durations in fixed log buckets.
+ - record() allocates nothing and takes no lock, safe on any thread
+ - buckets grow by ~19% (4 per power of 2) from 1 us up,
+   so a percentile is within one bucket of the real value
+ plain java, no android.
+*/
+public final class LatencyHistogram {
+
+    // 4 buckets per doubling
+    private static final int SUB_BUCKETS = 4;
+    private static final int DOUBLINGS = 42; // 2^42 us is ~50 days, more than enough
+    private static final int BUCKETS = DOUBLINGS * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /*
+     Records the time since startNanos (a System.nanoTime() value).
+    */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            return;
+        }
+        counts.incrementAndGet(bucketOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+
+        long max;
+        do {
+            max = maxMicros.get();
+        } while (micros > max && !maxMicros.compareAndSet(max, micros));
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public long getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : totalMicros.get() / n;
+    }
+
+    /*
+     Upper bound of the bucket holding the p-th percentile (0..100), in us.
+    */
+    public long percentileMicros(double p) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * p / 100.0);
+        if (rank < 1) {
+            rank = 1;
+        }
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        totalMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /*
+     One line, e.g. "tmdb.call n=12 p50=180.0ms p95=420.0ms p99=900.0ms max=950.0ms"
+    */
+    public String summary() {
+        return String.format(Locale.US, "%s n=%d p50=%s p95=%s p99=%s max=%s",
+                name, getCount(),
+                format(percentileMicros(50)),
+                format(percentileMicros(95)),
+                format(percentileMicros(99)),
+                format(getMaxMicros()));
+    }
+
+    /*
+     bucket = 4 * floor(log2(us)) + which quarter of that doubling.
+     values below 1 us go in bucket 0.
+    */
+    static int bucketOf(long micros) {
+        if (micros < 1) {
+            return 0;
+        }
+        int log2 = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = log2 >= 2
+                ? (int) ((micros >>> (log2 - 2)) & (SUB_BUCKETS - 1))
+                : (int) ((micros << (2 - log2)) & (SUB_BUCKETS - 1));
+        int bucket = log2 * SUB_BUCKETS + sub;
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    static long upperBound(int bucket) {
+        int log2 = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        // (1 + (sub + 1) / 4) * 2^log2
+        return ((long) (SUB_BUCKETS + sub + 1) << log2) / SUB_BUCKETS;
+    }
+
+    private static String format(long micros) {
+        return String.format(Locale.US, "%.1fms", micros / 1000.0);
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+/*
+ LeaderboardService keeps a local copy of the top N movies.
+ - the copy is saved (MovieStore + when it was saved), the screen shows it at once
+ - the movie docs only change when the jobs roll up (every ROLLUP_MILLIS),
+   so a copy younger than that is shown with no reads at all. an older
+   one is shown too, while a snapshot listener brings it up to date
+ - our own ratings are applied right away with the totals from the
+   shards (applyAggregate)
+ - N starts at 10 on every open and grows 10 -> 50 -> 100 when the user
+   scrolls 4 more, a bigger N than the copy has always listens
+ the Source is firestore in the app (FirestoreLeaderboardSource), the
+ Saved copy is SavedLeaderboard, fakes in tests.
+ Main thread only.
+*/
+public class LeaderboardService {
+
+    static final int[] PAGE_LIMITS = {10, 50, 100};
+
+    // how often the jobs roll the ratings up into movies/{id}, see .github/workflows/jobs.yml
+    static final long ROLLUP_MILLIS = 15 * 60 * 1000;
+
+    public interface Listener {
+        void onLeaderboard(List<Movie> movies);
+
+        void onError(Exception e);
+    }
+
+    /*
+     The top movies by score, live.
+    */
+    public interface Source {
+        // sink gets the top limit now and on every change until removed
+        Registration listen(int limit, Sink sink);
+    }
+
+    public interface Sink {
+        // fromServer false 4 an answer from the local cache only
+        void onTop(List<Movie> movies, boolean fromServer);
+
+        void onError(Exception e);
+    }
+
+    public interface Registration {
+        void remove();
+    }
+
+    /*
+     The copy kept on the phone.
+    */
+    public interface Saved {
+        // callback on the main thread, savedAt 0 if never saved
+        void read(SavedCallback callback);
+
+        void write(List<Movie> movies, long savedAt);
+    }
+
+    public interface SavedCallback {
+        void onSaved(List<Movie> movies, long savedAt);
+    }
+
+    private static LeaderboardService instance;
+
+    private final Source source;
+    private final Saved saved;
+    private final LongSupplier clock;
+
+    // the copy, can hold more than getLimit() rows, savedAt = when it came from the server
+    private List<Movie> view = new ArrayList<>();
+    private long savedAt;
+    private boolean loaded;
+
+    private int limitIndex;
+    private Listener listener;
+    private Registration registration;
+
+    public static LeaderboardService get(Context context) {
+        if (instance == null) {
+            instance = new LeaderboardService(new FirestoreLeaderboardSource(AppStartup.firestore()),
+                    new SavedLeaderboard(context), System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    LeaderboardService(Source source, Saved saved, LongSupplier clock) {
+        this.source = source;
+        this.saved = saved;
+        this.clock = clock;
+
+        saved.read((movies, at) -> {
+            loaded = true;
+            if (savedAt == 0 && view.isEmpty()) { // unless firestore was faster
+                view = movies;
+                savedAt = at;
+            }
+            if (listener != null) {
+                publish();
+                listenIfStale();
+            }
+        });
+    }
+
+    /*
+     Shows the saved view right away, listens only if it is out of date.
+    */
+    public void start(Listener listener) {
+        this.listener = listener;
+        limitIndex = 0;
+        publish();
+        if (loaded) {
+            listenIfStale();
+        }
+    }
+
+    public void stop() {
+        listener = null;
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    public int getLimit() {
+        return PAGE_LIMITS[limitIndex];
+    }
+
+    /*
+     Next bigger N, false if already at the biggest.
+    */
+    public boolean loadMore() {
+        if (limitIndex == PAGE_LIMITS.length - 1) {
+            return false;
+        }
+        limitIndex++;
+        if (listener != null) {
+            publish();
+            if (registration != null || view.size() < getLimit()) {
+                listen(); // the copy has fewer rows than asked 4, or is already live
+            }
+        }
+        return true;
+    }
+
+    /*
+     A rating of ours is in, update the view without waiting 4 the roll-up.
+    */
+    public void applyAggregate(Movie movie, ShardedRatingCounter.Totals totals) {
+        List<Movie> next = new ArrayList<>(view);
+
+        for (int i = 0; i < next.size(); i++) {
+            if (Objects.equals(next.get(i).getTmdbId(), movie.getTmdbId())) {
+                next.remove(i);
+                break;
+            }
+        }
+
+        Movie entry = new Movie();
+        entry.setTmdbId(movie.getTmdbId());
+        entry.setTitle(movie.getTitle());
+        entry.setPosterUrl(movie.getPosterUrl());
+        entry.setAvgRating(totals.avgRating);
+        entry.setScore(totals.score);
+
+        // insert in order, highest score first
+        int pos = 0;
+        while (pos < next.size() && next.get(pos).getScore() >= totals.score) {
+            pos++;
+        }
+        int max = Math.max(getLimit(), view.size());
+        if (pos < max) {
+            next.add(pos, entry);
+        }
+        while (next.size() > max) {
+            next.remove(next.size() - 1);
+        }
+
+        view = next;
+        saved.write(next, savedAt); // not newer than before, ours is only one rating
+        publish();
+    }
+
+    private void listenIfStale() {
+        if (registration == null && (view.size() < getLimit() || clock.getAsLong() - savedAt >= ROLLUP_MILLIS)) {
+            listen();
+        }
+    }
+
+    private void listen() {
+        if (registration != null) {
+            registration.remove();
+        }
+
+        registration = source.listen(getLimit(), new Sink() {
+            @Override
+            public void onTop(List<Movie> movies, boolean fromServer) {
+                if (!fromServer) {
+                    if (view.isEmpty()) { // nothing saved yet, the cache is better than nothing
+                        view = movies;
+                        publish();
+                    }
+                    return;
+                }
+                view = movies;
+                savedAt = clock.getAsLong();
+                saved.write(movies, savedAt);
+                publish();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                if (listener != null) {
+                    listener.onError(e);
+                }
+            }
+        });
+    }
+
+    private void publish() {
+        if (listener != null) {
+            List<Movie> top = view.size() > getLimit() ? view.subList(0, getLimit()) : view;
+            listener.onLeaderboard(Collections.unmodifiableList(new ArrayList<>(top)));
+        }
+    }
+}
@@ -22,19 +22,24 @@ public class LoginActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_login);
 
-        // Initialize Firebase auth
-        mAuth = FirebaseAuth.getInstance();
+        // Firebase auth, already being built in the background (AppStartup)
+        mAuth = AppStartup.auth();
 
         /*
-         If logged in go to main page
+         If logged in go to main page,
+         before inflating, the login layout is never shown then
         */
         if (mAuth.getCurrentUser() != null) {
+            AppStartup.mark("login.skipped");
             startActivity(new Intent(LoginActivity.this, MainActivity.class));
             finish();
+            return;
         }
 
+        setContentView(R.layout.activity_login);
+        AppStartup.mark("login.shown");
+
         // Get references to input fields and buttons
         emailField = findViewById(R.id.emailField);
         passwordField = findViewById(R.id.passwordField);
@@ -2,6 +2,8 @@ package com.example.moviewatchlist;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.Toast;
@@ -12,31 +14,25 @@ import androidx.appcompat.widget.Toolbar;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.SetOptions;
-import com.google.firebase.firestore.Transaction;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
-
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
-    private FirebaseFirestore db;
-    private FirebaseAuth auth;
+    private ShardedRatingCounter ratingCounter;
+    // the counter blocks, its calls run here one at a time
+    private final ExecutorService ratingExecutor = Executors.newSingleThreadExecutor();
+    private TmdbClient tmdb;
+    private SearchController searchController;
     private RecyclerView resultsList;
     private EditText searchField;
     private MovieAdapter adapter;
-    private List<Movie> movieResults;
+    private PagedSearchResults pagedResults;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,9 +44,10 @@ public class MainActivity extends AppCompatActivity {
         setSupportActionBar(toolbar);
         setTitle("Movie Watchlist");
 
-        // Firebase initialization
-        db = FirebaseFirestore.getInstance();
-        auth = FirebaseAuth.getInstance();
+        AppStartup.mark("main.onCreate");
+
+        // Firebase is warmed up in the background (AppStartup), only used on first rating / logout
+        tmdb = TmdbClient.get(this);
 
         // UI references
         resultsList = findViewById(R.id.resultsList);
@@ -62,156 +59,177 @@ public class MainActivity extends AppCompatActivity {
 
         // RecyclerView setup
         resultsList.setLayoutManager(new LinearLayoutManager(this));
-        movieResults = new ArrayList<>();
 
-
-        adapter = new MovieAdapter(this, movieResults, db, this::updateGlobalRating);
+        adapter = new MovieAdapter(this, this::updateGlobalRating);
         resultsList.setAdapter(adapter);
+        pagedResults = new PagedSearchResults(adapter);
+        PosterLoader.preload(this, resultsList, adapter);
 
-        // TMDB API request
-        searchButton.setOnClickListener(v -> {
-            String query = searchField.getText().toString().trim();
-            if (!query.isEmpty()) {
-                searchMovies(query);
-            } else {
-                Toast.makeText(this, "Enter a movie title", Toast.LENGTH_SHORT).show();
+        // long press a result to pick several and add them in one go
+        adapter.setSelection(new MultiSelection(this, R.menu.menu_select_search, (itemId, movies) -> {
+            if (itemId == R.id.actionAddSelected) {
+                addAllToWatchlist(movies);
             }
-        });
-
-        // Opens user watchlist screen
-        watchlistButton.setOnClickListener(v ->
-                startActivity(new Intent(this, WatchlistActivity.class)));
+        }));
 
-        // Opens Top 10
-        top10Button.setOnClickListener(v ->
-                startActivity(new Intent(this, Top10Activity.class)));
-
-        // Logout and go to LoginActivity
-        logoutButton.setOnClickListener(v -> {
-            auth.signOut();
-            startActivity(new Intent(this, LoginActivity.class));
-            finish();
+        // Infinite scroll, asks 4 the next page before the end is reached
+        resultsList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                int page = pagedResults.pageToLoad(
+                        lm.findFirstVisibleItemPosition(), lm.findLastVisibleItemPosition());
+                if (page > 0) {
+                    searchController.loadPage(page);
+                }
+            }
         });
-    }
-
-    /*
-     Executes a query to TMDB API using OkHttp.
-     Converts the movie title into a search request.
-    */
-    private void searchMovies(String title) {
-        String apiKey = getString(R.string.tmdb_api_key);
-
-        // TMDB search
-        String url = "https://api.themoviedb.org/3/search/movie?api_key=" + apiKey + "&query=" + title;
 
-        OkHttpClient client = new OkHttpClient();
-        Request request = new Request.Builder().url(url).build();
+        // TMDB search, as you type and on button
+        searchController = new SearchController(tmdb, new SearchController.Listener() {
+            @Override
+            public void onResults(String query, TmdbSearchPage page, boolean partial) {
+                pagedResults.reset(page);
+                resultsList.scrollToPosition(0);
 
-        // Make the HTTP request
-        client.newCall(request).enqueue(new okhttp3.Callback() {
+                // last results are kept 4 the next time the app opens
+                if (!partial) {
+                    MovieStore.get(MainActivity.this).replaceList(MovieRow.SEARCH, page.getMovies());
+                }
+            }
 
             @Override
-            public void onFailure(@NonNull okhttp3.Call call, @NonNull IOException e) {
-                runOnUiThread(() ->
-                        Toast.makeText(MainActivity.this, "Network error: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+            public void onPageLoaded(String query, TmdbSearchPage page) {
+                pagedResults.add(page);
             }
 
             @Override
-            public void onResponse(@NonNull okhttp3.Call call, @NonNull okhttp3.Response response) throws IOException {
-                if (!response.isSuccessful() || response.body() == null) {
-                    runOnUiThread(() ->
-                            Toast.makeText(MainActivity.this, "API error", Toast.LENGTH_SHORT).show());
-                    return;
-                }
+            public void onError(String message) {
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+            }
+        });
 
-                // Convert API to string
-                String json = response.body().string();
+        // ranking prior is only needed 4 ratings, fetched after the first frame
+        AppStartup.afterFirstFrame(resultsList, "main.firstFrame", () -> onRatingThread(() -> ratingCounter().loadPriorMean()));
 
-                // Process the results
-                runOnUiThread(() -> parseMovies(json));
+        // Last search results from disk, until a new search is made
+        MovieStore.get(this).readList(MovieRow.SEARCH, movies -> {
+            if (adapter.getItemCount() == 0 && !movies.isEmpty()) {
+                pagedResults.reset(new TmdbSearchPage(1, 1, movies));
             }
         });
-    }
 
-    /*
-     Parses the JSON returned by TMDB.
-     Creates Movie objects based on the API movie list.
-    */
-    private void parseMovies(String json) {
-        movieResults.clear();
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) { }
 
-        try {
-            JSONObject root = new JSONObject(json);
-            JSONArray results = root.getJSONArray("results");
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) { }
 
-            // Loop through TMDB results
-            for (int i = 0; i < results.length(); i++) {
-                JSONObject obj = results.getJSONObject(i);
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchController.onQueryChanged(s.toString());
+            }
+        });
 
-                Movie movie = new Movie();
-                movie.setTitle(obj.getString("title"));
-                movie.setTmdbId(obj.getString("id"));
+        searchButton.setOnClickListener(v -> {
+            String query = searchField.getText().toString().trim();
+            if (!query.isEmpty()) {
+                searchController.searchNow(query);
+            } else {
+                Toast.makeText(this, "Enter a movie title", Toast.LENGTH_SHORT).show();
+            }
+        });
 
-                // poster URL
-                movie.setPosterUrl(obj.isNull("poster_path") ? null :
-                        "https://image.tmdb.org/t/p/w500" + obj.getString("poster_path"));
+        // Opens user watchlist screen
+        watchlistButton.setOnClickListener(v ->
+                startActivity(new Intent(this, WatchlistActivity.class)));
 
-                // Default user rating is 0
-                movie.setRating(0);
+        // Opens Top 10
+        top10Button.setOnClickListener(v ->
+                startActivity(new Intent(this, Top10Activity.class)));
 
-                movieResults.add(movie);
-            }
+        // Logout and go to LoginActivity
+        // pending writes go out first, the saved lists are the old user's so they go
+        logoutButton.setOnClickListener(v -> {
+            logoutButton.setEnabled(false);
+            WriteBehindQueue.get().flush();
+            MovieStore.get(this).clear(() -> {
+                AppStartup.auth().signOut();
+                startActivity(new Intent(this, LoginActivity.class));
+                finish();
+            });
+        });
+    }
 
-            adapter.notifyDataSetChanged();
+    @Override
+    protected void onPause() {
+        super.onPause();
+        WriteBehindQueue.get().flush();
+        Metrics.dump(this);
+    }
 
-        } catch (Exception e) {
-            Toast.makeText(this, "Error parsing movie data", Toast.LENGTH_SHORT).show();
-            e.printStackTrace();
-        }
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchController.cancel();
+        ratingExecutor.shutdown();
     }
 
     /*
      update globl rting inside movies .
-    recalculate avgrating
+     the user's rating is stored once per movie, only the difference
+     goes to a counter shard. avgRating on the movie doc is rolled up by
+     the jobs, the totals shown here are read from the shards.
+     queued per movie, so only the last star value is sent
     */
     private void updateGlobalRating(String movieId, double newRating, Movie movie) {
+        String uid = AppStartup.auth().getCurrentUser().getUid();
+        WriteBehindQueue.get().coalesce("rating/" + movieId, () -> sendGlobalRating(uid, newRating, movie));
+    }
 
-        DocumentReference ref = db.collection("movies").document(movieId);
-
-        db.runTransaction((Transaction.Function<Void>) transaction -> {
-
-                    DocumentSnapshot snapshot = transaction.get(ref);
-
-                    double currentAvg = 0;
-                    long total = 0;
-
-                    // Extracts existing values
-                    if (snapshot.exists()) {
-                        currentAvg = snapshot.contains("avgRating") && snapshot.getDouble("avgRating") != null
-                                ? snapshot.getDouble("avgRating")
-                                : 0;
-
-                        total = snapshot.contains("totalRatings") && snapshot.getLong("totalRatings") != null
-                                ? snapshot.getLong("totalRatings")
-                                : 0;
-                    }
+    private void sendGlobalRating(String uid, double newRating, Movie movie) {
 
-                    // Recalculate the average
-                    double newAvg = ((currentAvg * total) + newRating) / (total + 1);
+        onRatingThread(() -> ratingCounter().setUserRating(movie, uid, newRating))
 
+                .addOnSuccessListener(totals -> {
                     // Store new average inside the movie object
-                    movie.setAvgRating(newAvg);
-
-                    // Merge keeps all other fields intact
-                    transaction.set(ref, movie, SetOptions.merge());
-
-                    return null;
+                    movie.setAvgRating(totals.avgRating);
+                    LeaderboardService.get(this).applyAggregate(movie, totals);
+                    Toast.makeText(this, "Rating updated!", Toast.LENGTH_SHORT).show();
                 })
 
-                .addOnSuccessListener(aVoid ->
-                        Toast.makeText(this, "Rating updated!", Toast.LENGTH_SHORT).show())
-
                 .addOnFailureListener(e ->
                         Toast.makeText(this, "Error updating rating: " + e.getMessage(), Toast.LENGTH_SHORT).show());
     }
+
+    /*
+     bulk add, one toast 4 all of them
+    */
+    private void addAllToWatchlist(List<Movie> movies) {
+        WatchlistBulk.add(movies)
+                .addOnSuccessListener(aVoid ->
+                        Toast.makeText(this, "Added " + movies.size() + " movies to Watchlist", Toast.LENGTH_SHORT).show())
+                .addOnFailureListener(e ->
+                        Toast.makeText(this, "Error adding movies: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+    }
+
+    private <T> Task<T> onRatingThread(Callable<T> call) {
+        TaskCompletionSource<T> result = new TaskCompletionSource<>();
+        ratingExecutor.execute(() -> {
+            try {
+                result.setResult(call.call());
+            } catch (Exception e) {
+                result.setException(e);
+            }
+        });
+        return result.getTask();
+    }
+
+    private ShardedRatingCounter ratingCounter() {
+        if (ratingCounter == null) {
+            ratingCounter = new ShardedRatingCounter(new FirestoreRatingStore(AppStartup.firestore()));
+        }
+        return ratingCounter;
+    }
 }
@@ -0,0 +1,117 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ Metrics holds the app's latency histograms 4 the hot paths.
+ - fixed fields, no map lookups and no allocation when recording
+ - Trace sections show up in perfetto / systrace next to the histograms
+ - dump() logs p50 / p95 / p99 under the "Metrics" tag, only in debuggable builds
+   adb logcat -s Metrics
+*/
+public final class Metrics {
+
+    private static final String TAG = "Metrics";
+
+    /* TMDB (see NetworkMetrics) */
+    public static final LatencyHistogram TMDB_CALL = new LatencyHistogram("tmdb.call");
+    public static final LatencyHistogram TMDB_DNS = new LatencyHistogram("tmdb.dns");
+    public static final LatencyHistogram TMDB_CONNECT = new LatencyHistogram("tmdb.connect");
+    public static final LatencyHistogram TMDB_TLS = new LatencyHistogram("tmdb.tls");
+    public static final LatencyHistogram TMDB_TTFB = new LatencyHistogram("tmdb.ttfb");
+    public static final LatencyHistogram TMDB_PARSE = new LatencyHistogram("tmdb.parse");
+    public static final LatencyHistogram DETAILS_FETCH = new LatencyHistogram("tmdb.details");
+
+    /* Firestore */
+    public static final LatencyHistogram RATING_TRANSACTION = new LatencyHistogram("rating.transaction");
+    public static final LatencyHistogram WATCHLIST_SNAPSHOT_TO_RENDER = new LatencyHistogram("watchlist.snapshot_to_render");
+
+    /* UI */
+    public static final LatencyHistogram BIND_SEARCH = new LatencyHistogram("bind.search");
+    public static final LatencyHistogram BIND_WATCHLIST = new LatencyHistogram("bind.watchlist");
+    public static final LatencyHistogram BIND_TOP = new LatencyHistogram("bind.top");
+
+    private static final LatencyHistogram[] ALL = {
+            TMDB_CALL, TMDB_DNS, TMDB_CONNECT, TMDB_TLS, TMDB_TTFB, TMDB_PARSE, DETAILS_FETCH,
+            RATING_TRANSACTION, WATCHLIST_SNAPSHOT_TO_RENDER,
+            BIND_SEARCH, BIND_WATCHLIST, BIND_TOP
+    };
+
+    // firestore runs the transaction function again on contention
+    private static final AtomicLong transactionAttempts = new AtomicLong();
+    private static final AtomicLong transactionRetries = new AtomicLong();
+
+    private Metrics() { }
+
+    /*
+     Start of a timed section: opens a Trace section and returns the start time.
+     pair with end(histogram, start) on the same thread.
+    */
+    public static long begin(String section) {
+        Trace.beginSection(section);
+        return System.nanoTime();
+    }
+
+    public static void end(LatencyHistogram histogram, long startNanos) {
+        histogram.recordSince(startNanos);
+        Trace.endSection();
+    }
+
+    /*
+     Called once per run of a transaction function, attempt starts at 1.
+    */
+    public static void transactionAttempt(int attempt) {
+        transactionAttempts.incrementAndGet();
+        if (attempt > 1) {
+            transactionRetries.incrementAndGet();
+        }
+    }
+
+    public static long getTransactionRetries() {
+        return transactionRetries.get();
+    }
+
+    /*
+     All histograms, one line each.
+    */
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram h : ALL) {
+            if (h.getCount() > 0) {
+                sb.append(h.summary()).append('\n');
+            }
+        }
+        String details = DetailsEnricher.report();
+        if (!details.isEmpty()) {
+            sb.append(details).append('\n');
+        }
+        sb.append("rating.transaction attempts=").append(transactionAttempts.get())
+                .append(" retries=").append(transactionRetries.get());
+        return sb.toString();
+    }
+
+    /*
+     Logs the startup phases and report() in debuggable builds, e.g. from onPause.
+    */
+    public static void dump(Context context) {
+        if ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) {
+            return;
+        }
+        for (String line : (AppStartup.report() + "\n" + report()).split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    public static void reset() {
+        for (LatencyHistogram h : ALL) {
+            h.reset();
+        }
+        transactionAttempts.set(0);
+        transactionRetries.set(0);
+    }
+}
@@ -1,5 +1,9 @@
 package com.example.moviewatchlist;
 
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
 /*
  The Movie class represents a movie item used throughout the app.
 */
@@ -34,6 +38,23 @@ public class Movie {
     */
     private double avgRating;
 
+    /*
+     Ranking score on "movies/{id}", see RankingEngine.
+    */
+    private double score;
+
+    /*
+     Last write time in firestore (server timestamp), can be null.
+     the offline store uses it so old data never replaces newer.
+    */
+    private Date updatedAt;
+
+    /*
+     When it was put on the watchlist (server timestamp), can be null.
+     movies added before this field existed don't have it.
+    */
+    private Date addedAt;
+
     /*
        empty constructor required by firebase
     */
@@ -86,4 +107,44 @@ public class Movie {
     public void setAvgRating(double avgRating) {
         this.avgRating = avgRating;
     }
+
+    public double getScore() {
+        return score;
+    }
+
+    public void setScore(double score) {
+        this.score = score;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Date getAddedAt() {
+        return addedAt;
+    }
+
+    public void setAddedAt(Date addedAt) {
+        this.addedAt = addedAt;
+    }
+
+    /*
+     Same fields firestore writes 4 set(movie), as a map
+     (without updatedAt / addedAt, callers put a server timestamp there).
+     used when writes are merged before they are sent (WriteBehindQueue).
+     not a getter, so firestore does not store it as a field.
+    */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("title", title);
+        map.put("tmdbId", tmdbId);
+        map.put("posterUrl", posterUrl);
+        map.put("rating", rating);
+        map.put("avgRating", avgRating);
+        return map;
+    }
 }
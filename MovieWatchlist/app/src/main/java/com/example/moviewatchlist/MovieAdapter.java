@@ -11,40 +11,45 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FieldValue;
 
 import java.util.List;
+import java.util.Map;
 
 /*
 MovieAdapter is for UI elements
 it also is used for updating the globl ranking
 */
-public class MovieAdapter extends RecyclerView.Adapter<MovieAdapter.ViewHolder> {
+public class MovieAdapter extends ListAdapter<Movie, MovieAdapter.ViewHolder>
+        implements PosterLoader.ItemSource {
 
     private final Context context;
-    private final List<Movie> movies;
-    private final FirebaseFirestore db;
 
     /*
      updating global rting
     */
     private final RatingUpdateListener ratingUpdateListener;
 
+    // multi-select, null when the list has none
+    private MultiSelection selection;
+
 
     public interface RatingUpdateListener {
         void onRatingUpdate(String movieId, double rating, Movie movie);
     }
 
-    public MovieAdapter(Context context, List<Movie> movies, FirebaseFirestore db, RatingUpdateListener listener) {
+    /*
+     rows come in with submitList, diffed off the main thread
+    */
+    public MovieAdapter(Context context, RatingUpdateListener listener) {
+        super(new MovieDiffCallback());
         this.context = context;
-        this.movies = movies;
-        this.db = db;
         this.ratingUpdateListener = listener;
+        setHasStableIds(true);
     }
 
 
@@ -56,18 +61,33 @@ public class MovieAdapter extends RecyclerView.Adapter<MovieAdapter.ViewHolder>
     }
 
 
+    public void setSelection(MultiSelection selection) {
+        this.selection = selection;
+        selection.attach(this);
+    }
+
+    /*
+     only the picked state changed, no need 4 a full bind
+    */
+    @Override
+    public void onBindViewHolder(@NonNull MovieAdapter.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (selection != null && !payloads.isEmpty() && payloads.stream().allMatch(p -> p == MultiSelection.PAYLOAD_SELECTION)) {
+            holder.itemView.setActivated(selection.isSelected(getItem(position)));
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
     @Override
     public void onBindViewHolder(@NonNull MovieAdapter.ViewHolder holder, int position) {
-        Movie movie = movies.get(position);
+        long bindStart = Metrics.begin("bind.search");
+        Movie movie = getItem(position);
 
         // Set title text
         holder.title.setText(movie.getTitle());
 
         // Load poster image
-        Glide.with(context)
-                .load(movie.getPosterUrl())
-                .placeholder(R.drawable.placeholder)
-                .into(holder.poster);
+        PosterLoader.load(holder.poster, movie.getPosterUrl());
 
         // Set default rating
         holder.ratingBar.setRating(movie.getRating());
@@ -90,31 +110,40 @@ public class MovieAdapter extends RecyclerView.Adapter<MovieAdapter.ViewHolder>
          add to watchlist
         */
         holder.addToWatchlistButton.setOnClickListener(v -> addToWatchlist(movie));
+
+        if (selection != null) {
+            selection.bind(holder, movie);
+        }
+        Metrics.end(Metrics.BIND_SEARCH, bindStart);
     }
 
     /*
-     add to watchlist in firestore
+     add to watchlist in firestore.
+     goes through the write-behind queue, sent with the next batch
     */
     private void addToWatchlist(Movie movie) {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        String userId = AppStartup.auth().getCurrentUser().getUid();
 
-        DocumentReference ref = db.collection("users")
+        DocumentReference ref = AppStartup.firestore().collection("users")
                 .document(userId)
                 .collection("watchlist")
                 .document(movie.getTmdbId());
 
-        ref.set(movie)
-                .addOnSuccessListener(aVoid ->
-                        Toast.makeText(context, "Added to Watchlist", Toast.LENGTH_SHORT).show()
-                )
-                .addOnFailureListener(e ->
-                        Toast.makeText(context, "Failed to add: " + e.getMessage(), Toast.LENGTH_SHORT).show()
-                );
+        Map<String, Object> data = movie.toMap();
+        data.put("updatedAt", FieldValue.serverTimestamp());
+        data.put("addedAt", FieldValue.serverTimestamp());
+        WriteBehindQueue.get().set(ref, data);
+        Toast.makeText(context, "Added to Watchlist", Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return MovieDiffCallback.stableId(getItem(position));
     }
 
     @Override
-    public int getItemCount() {
-        return movies.size();
+    public Movie getMovie(int position) {
+        return getItem(position);
     }
 
 
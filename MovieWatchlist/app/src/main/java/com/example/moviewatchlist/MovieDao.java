@@ -0,0 +1,75 @@
+package com.example.moviewatchlist;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ Room queries 4 movie_rows and movie_details.
+*/
+@Dao
+public interface MovieDao {
+
+    @Query("SELECT * FROM movie_rows WHERE list = :list ORDER BY position")
+    List<MovieRow> getList(String list);
+
+    @Query("SELECT * FROM movie_rows WHERE list = :list AND tmdbId = :tmdbId")
+    MovieRow find(String list, String tmdbId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<MovieRow> rows);
+
+    @Query("DELETE FROM movie_rows WHERE list = :list AND tmdbId = :tmdbId")
+    void delete(String list, String tmdbId);
+
+    @Query("DELETE FROM movie_rows WHERE list = :list")
+    void clearList(String list);
+
+    // every list, on sign out (SEEN has the last user's watchlist and ratings too)
+    @Query("DELETE FROM movie_rows")
+    void clearAll();
+
+    // rows at or after position move down / up one, 4 inserts and removes
+    @Query("UPDATE movie_rows SET position = position + :by WHERE list = :list AND position >= :from")
+    void shift(String list, int from, int by);
+
+    @Query("SELECT * FROM movie_details WHERE tmdbId = :tmdbId")
+    MovieDetailsRow findDetails(String tmdbId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertDetails(MovieDetailsRow row);
+
+    @Transaction
+    default void replaceList(String list, List<MovieRow> rows) {
+        clearList(list);
+        upsert(rows);
+    }
+
+    /*
+     Takes a row out of the list, the rows after it close the gap.
+     returns the row as it was, null if it was not there.
+    */
+    @Transaction
+    default MovieRow remove(String list, String tmdbId) {
+        MovieRow saved = find(list, tmdbId);
+        if (saved != null) {
+            delete(list, tmdbId);
+            shift(list, saved.position + 1, -1);
+        }
+        return saved;
+    }
+
+    /*
+     Puts a row at its position, the rows from there on move down one.
+    */
+    @Transaction
+    default void insertAt(MovieRow row) {
+        shift(row.list, row.position, 1);
+        upsert(Collections.singletonList(row));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/*
+ Local sqlite database, one 4 the app.
+*/
+@Database(entities = {MovieRow.class, MovieDetailsRow.class}, version = 2, exportSchema = false)
+public abstract class MovieDatabase extends RoomDatabase {
+
+    private static final String NAME = "movies.db";
+
+    private static volatile MovieDatabase instance;
+
+    // 2: movie_details (DetailsEnricher)
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `movie_details` (`tmdbId` TEXT NOT NULL, "
+                    + "`runtime` INTEGER NOT NULL, `genres` TEXT, `releaseYear` INTEGER NOT NULL, "
+                    + "`fetchedAt` INTEGER NOT NULL, PRIMARY KEY(`tmdbId`))");
+        }
+    };
+
+    public abstract MovieDao movieDao();
+
+    public static MovieDatabase get(Context context) {
+        if (instance == null) {
+            synchronized (MovieDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(), MovieDatabase.class, NAME)
+                            .addMigrations(MIGRATION_1_2)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
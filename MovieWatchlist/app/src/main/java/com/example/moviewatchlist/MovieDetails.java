@@ -0,0 +1,59 @@
+package com.example.moviewatchlist;
+
+import java.util.List;
+
+/*
+ The extra TMDB fields of a movie (/movie/{id}), not in the search results.
+ fetched and kept by DetailsEnricher, shown under the title in the lists.
+ plain java.
+*/
+public class MovieDetails {
+
+    public final String tmdbId;
+
+    // minutes, 0 if TMDB does not know
+    public final int runtime;
+
+    public final List<String> genres;
+
+    // 0 if there is no release date
+    public final int releaseYear;
+
+    // when it was fetched from TMDB, millis
+    public final long fetchedAt;
+
+    public MovieDetails(String tmdbId, int runtime, List<String> genres, int releaseYear, long fetchedAt) {
+        this.tmdbId = tmdbId;
+        this.runtime = runtime;
+        this.genres = genres;
+        this.releaseYear = releaseYear;
+        this.fetchedAt = fetchedAt;
+    }
+
+    public boolean isExpired(long now, long ttlMillis) {
+        return now - fetchedAt > ttlMillis;
+    }
+
+    /*
+     "2010 · 148 min · Action, Science Fiction", parts TMDB doesn't have are left out.
+    */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        if (releaseYear > 0) {
+            sb.append(releaseYear);
+        }
+        if (runtime > 0) {
+            if (sb.length() > 0) {
+                sb.append(" · ");
+            }
+            sb.append(runtime).append(" min");
+        }
+        if (!genres.isEmpty()) {
+            if (sb.length() > 0) {
+                sb.append(" · ");
+            }
+            sb.append(String.join(", ", genres));
+        }
+        return sb.toString();
+    }
+}
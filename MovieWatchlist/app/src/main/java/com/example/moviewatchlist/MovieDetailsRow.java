@@ -0,0 +1,49 @@
+package com.example.moviewatchlist;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/*
+ MovieDetails saved on the phone (room table movie_details),
+ one row per movie, so each movie is fetched once per DetailsEnricher.TTL_MILLIS.
+*/
+@Entity(tableName = "movie_details")
+public class MovieDetailsRow {
+
+    private static final String GENRE_SEPARATOR = "|";
+
+    @PrimaryKey
+    @NonNull
+    public String tmdbId = "";
+
+    public int runtime;
+
+    // genre names joined with GENRE_SEPARATOR
+    public String genres;
+
+    public int releaseYear;
+
+    public long fetchedAt;
+
+    static MovieDetailsRow from(MovieDetails details) {
+        MovieDetailsRow row = new MovieDetailsRow();
+        row.tmdbId = details.tmdbId;
+        row.runtime = details.runtime;
+        row.genres = String.join(GENRE_SEPARATOR, details.genres);
+        row.releaseYear = details.releaseYear;
+        row.fetchedAt = details.fetchedAt;
+        return row;
+    }
+
+    MovieDetails toDetails() {
+        return new MovieDetails(tmdbId, runtime,
+                genres == null || genres.isEmpty()
+                        ? new ArrayList<>()
+                        : Arrays.asList(genres.split("\\|")),
+                releaseYear, fetchedAt);
+    }
+}
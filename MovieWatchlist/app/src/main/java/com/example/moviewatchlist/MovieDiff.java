@@ -0,0 +1,45 @@
+package com.example.moviewatchlist;
+
+import java.util.Objects;
+
+/*
+ Diff rules 4 all movie lists, plain java (MovieDiffCallback hands them
+ to DiffUtil, WatchlistDiffBenchmark runs them without android).
+ same item = same tmdbId.
+ same content = same title, rating, avgRating and poster,
+ so only rows that really changed get rebound.
+*/
+final class MovieDiff {
+
+    // RecyclerView.NO_ID
+    static final long NO_ID = -1;
+
+    private MovieDiff() { }
+
+    static boolean sameItem(Movie a, Movie b) {
+        return Objects.equals(a.getTmdbId(), b.getTmdbId());
+    }
+
+    static boolean sameContents(Movie a, Movie b) {
+        return Objects.equals(a.getTitle(), b.getTitle())
+                && a.getRating() == b.getRating()
+                && Double.compare(a.getAvgRating(), b.getAvgRating()) == 0
+                && Objects.equals(a.getPosterUrl(), b.getPosterUrl());
+    }
+
+    /*
+     Stable RecyclerView id 4 a movie.
+     TMDB ids are numbers, anything else falls back to a hash.
+    */
+    static long stableId(Movie movie) {
+        String id = movie.getTmdbId();
+        if (id == null) {
+            return NO_ID;
+        }
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return id.hashCode();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.moviewatchlist;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+/*
+ Diff rules 4 all movie lists, see MovieDiff.
+*/
+public class MovieDiffCallback extends DiffUtil.ItemCallback<Movie> {
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Movie oldItem, @NonNull Movie newItem) {
+        return MovieDiff.sameItem(oldItem, newItem);
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Movie oldItem, @NonNull Movie newItem) {
+        return MovieDiff.sameContents(oldItem, newItem);
+    }
+
+    static long stableId(Movie movie) {
+        return MovieDiff.stableId(movie);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+import java.io.InputStream;
+
+/*
+ Glide setup 4 the poster lists.
+ - RGB_565 (half the memory of ARGB_8888, posters have no alpha)
+ - memory cache sized 4 about 2 screens of thumbnails
+ - 100 MB disk cache so posters survive restarts
+ - TmdbPoster models load the size that fits the view
+*/
+@GlideModule
+public final class MovieGlideModule extends AppGlideModule {
+
+    private static final long DISK_CACHE_SIZE = 100L * 1024 * 1024;
+    private static final float MEMORY_CACHE_SCREENS = 2;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .build();
+
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()))
+                .setDiskCache(new InternalCacheDiskCacheFactory(context, "posters", DISK_CACHE_SIZE))
+                .setDefaultRequestOptions(new RequestOptions().format(DecodeFormat.PREFER_RGB_565));
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(TmdbPoster.class, InputStream.class, new TmdbPosterLoader.Factory());
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.moviewatchlist;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+import java.util.Date;
+
+/*
+ One Movie saved on the phone (room table movie_rows).
+ the same movie can be in more than one list,
+ so the key is (list, tmdbId).
+*/
+@Entity(tableName = "movie_rows",
+        primaryKeys = {"list", "tmdbId"},
+        indices = {@Index("tmdbId"), @Index("avgRating"), @Index({"list", "position"})})
+public class MovieRow {
+
+    public static final String WATCHLIST = "watchlist";
+    public static final String SEARCH = "search";
+    public static final String TOP = "top";
+    // every movie the app has seen, 4 the local search (TitleIndex), not ordered
+    public static final String SEEN = "seen";
+
+    @NonNull
+    public String list = "";
+
+    @NonNull
+    public String tmdbId = "";
+
+    public String title;
+    public String posterUrl;
+    public int rating;
+    public double avgRating;
+    public double score;
+
+    // order inside the list
+    public int position;
+
+    // firestore updatedAt in millis, 0 if unknown
+    public long updatedAt;
+
+    static MovieRow from(String list, int position, Movie movie) {
+        MovieRow row = new MovieRow();
+        row.list = list;
+        row.tmdbId = movie.getTmdbId();
+        row.title = movie.getTitle();
+        row.posterUrl = movie.getPosterUrl();
+        row.rating = movie.getRating();
+        row.avgRating = movie.getAvgRating();
+        row.score = movie.getScore();
+        row.position = position;
+        row.updatedAt = movie.getUpdatedAt() != null ? movie.getUpdatedAt().getTime() : 0;
+        return row;
+    }
+
+    Movie toMovie() {
+        Movie movie = new Movie();
+        movie.setTmdbId(tmdbId);
+        movie.setTitle(title);
+        movie.setPosterUrl(posterUrl);
+        movie.setRating(rating);
+        movie.setAvgRating(avgRating);
+        movie.setScore(score);
+        movie.setUpdatedAt(updatedAt > 0 ? new Date(updatedAt) : null);
+        return movie;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ MovieStore is the offline copy of the movie lists (watchlist, last search, top N).
+ - screens read from here first, so they show something with no network
+ - firestore / TMDB results are written back here in the background
+ - watchlist rows keep firestore's updatedAt, an older version
+   never overwrites a newer one
+ - every movie written here is also kept in the SEEN list and added
+   to the TitleIndex, the index is loaded from SEEN when the store opens
+ Reads and writes run on one background thread, callbacks on the main thread.
+*/
+public class MovieStore {
+
+    public interface Callback {
+        void onMovies(List<Movie> movies);
+    }
+
+    // SEEN rows are put in the index this many at a time, a search waits at most 4 one chunk
+    private static final int INDEX_CHUNK = 500;
+
+    private static volatile MovieStore instance;
+
+    private final MovieDao dao;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static MovieStore get(Context context) {
+        if (instance == null) {
+            synchronized (MovieStore.class) {
+                if (instance == null) {
+                    instance = new MovieStore(MovieDatabase.get(context).movieDao());
+                }
+            }
+        }
+        return instance;
+    }
+
+    MovieStore(MovieDao dao) {
+        this.dao = dao;
+        io.execute(this::loadIndex);
+    }
+
+    /*
+     Reads a saved list, result on the main thread.
+    */
+    public void readList(String list, Callback callback) {
+        io.execute(() -> {
+            List<Movie> movies = readListNow(list);
+            mainHandler.post(() -> callback.onMovies(movies));
+        });
+    }
+
+    /*
+     Same 4 callers already on a background thread.
+    */
+    public List<Movie> readListNow(String list) {
+        List<Movie> movies = new ArrayList<>();
+        for (MovieRow row : dao.getList(list)) {
+            movies.add(row.toMovie());
+        }
+        return movies;
+    }
+
+    /*
+     Replaces a whole list, e.g. new search results or a new top N.
+    */
+    public void replaceList(String list, List<Movie> movies) {
+        List<Movie> copy = new ArrayList<>(movies);
+        io.execute(() -> {
+            dao.replaceList(list, toRows(list, copy));
+            remember(copy);
+        });
+    }
+
+    /*
+     Mirrors one snapshot of watchlist changes.
+     applied one by one like the adapter does (remove, then insert at the
+     new index), the rows in between move up / down so the saved order
+     matches the screen.
+    */
+    public void applyWatchlistChanges(List<WatchlistIndex.Change> changes) {
+        List<WatchlistIndex.Change> copy = new ArrayList<>(changes);
+        io.execute(() -> {
+            List<Movie> seen = new ArrayList<>();
+            for (WatchlistIndex.Change c : copy) {
+                MovieRow saved = dao.remove(MovieRow.WATCHLIST, c.tmdbId);
+                if (c.movie == null || c.newIndex < 0) {
+                    continue;
+                }
+
+                MovieRow row = MovieRow.from(MovieRow.WATCHLIST, c.newIndex, c.movie);
+                if (saved != null && row.updatedAt != 0 && row.updatedAt < saved.updatedAt) {
+                    saved.position = c.newIndex; // an older version, keep ours at the new place
+                    row = saved;
+                } else {
+                    seen.add(c.movie);
+                }
+                dao.insertAt(row);
+            }
+            remember(seen);
+        });
+    }
+
+    /*
+     Forgets everything saved 4 the signed in user: every list, SEEN
+     and the TitleIndex. done runs on the main thread once it is gone.
+    */
+    public void clear(Runnable done) {
+        io.execute(() -> {
+            dao.clearAll();
+            TitleIndex.get().clear();
+            mainHandler.post(done);
+        });
+    }
+
+    /*
+     Adds movies to SEEN and the index, io thread only.
+    */
+    private void remember(List<Movie> movies) {
+        List<MovieRow> rows = new ArrayList<>(movies.size());
+        for (Movie m : movies) {
+            rows.add(MovieRow.from(MovieRow.SEEN, 0, m));
+        }
+        dao.upsert(rows);
+        TitleIndex.get().addAll(movies);
+    }
+
+    private void loadIndex() {
+        List<Movie> seen = readListNow(MovieRow.SEEN);
+        for (int i = 0; i < seen.size(); i += INDEX_CHUNK) {
+            TitleIndex.get().addAll(seen.subList(i, Math.min(seen.size(), i + INDEX_CHUNK)));
+        }
+    }
+
+
+    private static List<MovieRow> toRows(String list, List<Movie> movies) {
+        List<MovieRow> rows = new ArrayList<>(movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            rows.add(MovieRow.from(list, i, movies.get(i)));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.moviewatchlist;
+
+import android.app.Application;
+import android.widget.Toast;
+
+/*
+ Application class, starts the background warm-up (see AppStartup)
+ and tells the user about writes firestore rejected.
+ nothing here may block, it runs before the first activity.
+*/
+public class MovieWatchlistApp extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        AppStartup.start(this);
+        WriteBehindQueue.setDropListener((writes, e) -> Toast.makeText(this,
+                "Could not save " + writes + " changes", Toast.LENGTH_LONG).show());
+    }
+}
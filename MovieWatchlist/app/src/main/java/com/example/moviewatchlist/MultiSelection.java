@@ -0,0 +1,143 @@
+package com.example.moviewatchlist;
+
+import android.view.Menu;
+import android.view.MenuItem;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.view.ActionMode;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Multi-select mode 4 a movie list.
+ - long press a row to start, then tap rows to add / remove them
+ - picked rows are "activated" (see fg_selected_row), the actions
+   are in a contextual action bar over the toolbar
+ - the action gets the picked movies, the mode ends after it
+ Main thread only.
+*/
+public class MultiSelection {
+
+    /*
+     One of the menu items was tapped with these movies picked.
+    */
+    public interface Actions {
+        void onAction(int itemId, List<Movie> movies);
+    }
+
+    // tells the adapter only the selection changed, not the movie
+    static final Object PAYLOAD_SELECTION = new Object();
+
+    private final AppCompatActivity activity;
+    private final int menuRes;
+    private final Actions actions;
+
+    // tmdbId -> movie, in the order they were picked
+    private final Map<String, Movie> selected = new LinkedHashMap<>();
+
+    private RecyclerView.Adapter<?> adapter;
+    private ActionMode mode;
+
+    public MultiSelection(AppCompatActivity activity, int menuRes, Actions actions) {
+        this.activity = activity;
+        this.menuRes = menuRes;
+        this.actions = actions;
+    }
+
+    void attach(RecyclerView.Adapter<?> adapter) {
+        this.adapter = adapter;
+    }
+
+    public boolean isActive() {
+        return mode != null;
+    }
+
+    public boolean isSelected(Movie movie) {
+        return selected.containsKey(movie.getTmdbId());
+    }
+
+    /*
+     Wires a bound row: shows if it is picked, long press starts
+     the mode, a tap toggles while the mode is on.
+    */
+    void bind(RecyclerView.ViewHolder holder, Movie movie) {
+        holder.itemView.setActivated(isSelected(movie));
+
+        holder.itemView.setOnLongClickListener(v -> {
+            toggle(movie, holder.getBindingAdapterPosition());
+            return true;
+        });
+        holder.itemView.setOnClickListener(v -> {
+            if (isActive()) {
+                toggle(movie, holder.getBindingAdapterPosition());
+            }
+        });
+    }
+
+    public void toggle(Movie movie, int position) {
+        if (selected.remove(movie.getTmdbId()) == null) {
+            selected.put(movie.getTmdbId(), movie);
+        }
+        if (adapter != null && position != RecyclerView.NO_POSITION) {
+            adapter.notifyItemChanged(position, PAYLOAD_SELECTION);
+        }
+
+        if (selected.isEmpty()) {
+            finish();
+        } else if (mode == null) {
+            mode = activity.startSupportActionMode(callback);
+        } else {
+            mode.invalidate();
+        }
+    }
+
+    public void finish() {
+        if (mode != null) {
+            mode.finish(); // clears in onDestroyActionMode
+        }
+    }
+
+    private void clear() {
+        if (selected.isEmpty()) {
+            return;
+        }
+        selected.clear();
+        if (adapter != null) {
+            adapter.notifyItemRangeChanged(0, adapter.getItemCount(), PAYLOAD_SELECTION);
+        }
+    }
+
+    private final ActionMode.Callback callback = new ActionMode.Callback() {
+        @Override
+        public boolean onCreateActionMode(ActionMode mode, Menu menu) {
+            mode.getMenuInflater().inflate(menuRes, menu);
+            return true;
+        }
+
+        @Override
+        public boolean onPrepareActionMode(ActionMode mode, Menu menu) {
+            mode.setTitle(selected.size() + " selected");
+            return false;
+        }
+
+        @Override
+        public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
+            if (item.hasSubMenu()) {
+                return false; // opens the sub menu
+            }
+            actions.onAction(item.getItemId(), new ArrayList<>(selected.values()));
+            mode.finish();
+            return true;
+        }
+
+        @Override
+        public void onDestroyActionMode(ActionMode actionMode) {
+            mode = null;
+            clear();
+        }
+    };
+}
@@ -0,0 +1,91 @@
+package com.example.moviewatchlist;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+
+/*
+ OkHttp EventListener that splits each TMDB call into
+ dns / connect / tls / time to first byte, plus the whole call.
+ one listener per call (okhttp calls it from one thread at a time),
+ pooled connections simply skip the dns / connect / tls events.
+ cache hits only count in tmdb.call. callEnd comes when the body is closed,
+ so tmdb.call includes reading (and parsing) the body.
+*/
+public class NetworkMetrics extends EventListener {
+
+    public static final EventListener.Factory FACTORY = call -> new NetworkMetrics();
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long tlsStart;
+    private long requestStart;
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> addresses) {
+        Metrics.TMDB_DNS.recordSince(dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(@NonNull Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+        Metrics.TMDB_TLS.recordSince(tlsStart);
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress address, @NonNull Proxy proxy, @Nullable Protocol protocol) {
+        Metrics.TMDB_CONNECT.recordSince(connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        if (requestStart != 0) {
+            Metrics.TMDB_TTFB.recordSince(requestStart);
+        }
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        Metrics.TMDB_CALL.recordSince(callStart);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        Metrics.TMDB_CALL.recordSince(callStart);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.moviewatchlist;
+
+import androidx.recyclerview.widget.ListAdapter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ PagedSearchResults keeps the search pages that are in the adapter list.
+ - pages are appended at the end and prepended at the start
+ - only MAX_PAGES pages are kept, the one furthest from the
+   viewport is dropped when a new one comes in
+ - every change is submitted as a new list, the diff turns it
+   into range inserts/removes, never notifyDataSetChanged
+ - TMDB often has the same movie on two pages, a movie already in the
+   list is left out of the new page (the adapter's ids must be unique)
+*/
+public class PagedSearchResults {
+
+    // TMDB never returns more than 500 pages
+    static final int TMDB_MAX_PAGES = 500;
+    static final int MAX_PAGES = 10;
+
+    // load the next page when this many rows are left
+    static final int PREFETCH_DISTANCE = 10;
+
+    private final List<Movie> items = new ArrayList<>();
+    private final ListAdapter<Movie, ?> adapter;
+
+    // sizes of the loaded pages, first loaded page at the head
+    private final Deque<Integer> pageSizes = new ArrayDeque<>();
+
+    // tmdbIds of the movies in items
+    private final Set<String> shownIds = new HashSet<>();
+    private int firstPage;
+    private int lastPage;
+    private int totalPages;
+
+    public PagedSearchResults(ListAdapter<Movie, ?> adapter) {
+        this.adapter = adapter;
+    }
+
+    /*
+     A new query, replaces everything with its first page.
+    */
+    public void reset(TmdbSearchPage page) {
+        items.clear();
+        pageSizes.clear();
+        shownIds.clear();
+
+        firstPage = page.getPage();
+        lastPage = page.getPage();
+        totalPages = Math.min(page.getTotalPages(), TMDB_MAX_PAGES);
+
+        List<Movie> movies = notShown(page.getMovies());
+        items.addAll(movies);
+        pageSizes.addLast(movies.size());
+        submit();
+    }
+
+    /*
+     Adds a loaded page if it fits at either end, otherwise ignores it.
+    */
+    public void add(TmdbSearchPage page) {
+        if (page.getPage() == lastPage + 1) {
+            append(page.getMovies());
+        } else if (page.getPage() == firstPage - 1) {
+            prepend(page.getMovies());
+        } else {
+            return;
+        }
+        submit();
+    }
+
+    /*
+     Which page should be loaded 4 the visible rows, or -1 4 none.
+    */
+    public int pageToLoad(int firstVisible, int lastVisible) {
+        if (items.isEmpty()) {
+            return -1;
+        }
+        if (lastVisible >= items.size() - PREFETCH_DISTANCE && lastPage < totalPages) {
+            return lastPage + 1;
+        }
+        if (firstVisible <= PREFETCH_DISTANCE && firstPage > 1) {
+            return firstPage - 1;
+        }
+        return -1;
+    }
+
+    /*
+     the page furthest away is dropped first, so its movies can show up
+     again in the new one
+    */
+    private void append(List<Movie> movies) {
+        // drop the page at the top, the user is far below it
+        if (pageSizes.size() == MAX_PAGES) {
+            int size = pageSizes.removeFirst();
+            remove(items.subList(0, size));
+            firstPage++;
+        }
+
+        List<Movie> fresh = notShown(movies);
+        items.addAll(fresh);
+        pageSizes.addLast(fresh.size());
+        lastPage++;
+    }
+
+    private void prepend(List<Movie> movies) {
+        // drop the page at the bottom
+        if (pageSizes.size() == MAX_PAGES) {
+            int size = pageSizes.removeLast();
+            remove(items.subList(items.size() - size, items.size()));
+            lastPage--;
+        }
+
+        List<Movie> fresh = notShown(movies);
+        items.addAll(0, fresh);
+        pageSizes.addFirst(fresh.size());
+        firstPage--;
+    }
+
+    /*
+     the movies of a page that are not in the list yet (nor twice in the
+     page), their ids count as shown from now on. no id = always kept
+    */
+    private List<Movie> notShown(List<Movie> movies) {
+        List<Movie> fresh = new ArrayList<>(movies.size());
+        for (Movie m : movies) {
+            if (m.getTmdbId() == null || shownIds.add(m.getTmdbId())) {
+                fresh.add(m);
+            }
+        }
+        return fresh;
+    }
+
+    private void remove(List<Movie> range) {
+        for (Movie m : range) {
+            if (m.getTmdbId() != null) {
+                shownIds.remove(m.getTmdbId());
+            }
+        }
+        range.clear();
+    }
+
+    /*
+     the adapter keeps the list it gets, so it gets a copy
+    */
+    private void submit() {
+        adapter.submitList(new ArrayList<>(items));
+    }
+}
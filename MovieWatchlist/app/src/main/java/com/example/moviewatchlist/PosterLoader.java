@@ -0,0 +1,94 @@
+package com.example.moviewatchlist;
+
+import android.app.Activity;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
+
+import java.util.Collections;
+import java.util.List;
+
+/*
+ One place 4 loading posters in the lists.
+ - load(): poster 4 one row, sized to the ImageView
+ - preload(): fetches the posters of the next rows before they scroll in
+*/
+public final class PosterLoader {
+
+    // rows ahead of the last visible one
+    static final int PRELOAD_ROWS = 6;
+
+    /*
+     Row lookup 4 the preloader.
+    */
+    public interface ItemSource {
+        int getItemCount();
+
+        Movie getMovie(int position);
+    }
+
+    private PosterLoader() { }
+
+    public static void load(ImageView view, @Nullable String posterUrl) {
+        Glide.with(view)
+                .load(posterUrl != null ? new TmdbPoster(posterUrl) : null)
+                .centerCrop()
+                .placeholder(R.drawable.placeholder)
+                .into(view);
+    }
+
+    /*
+     Preloads posters of the next rows while the list scrolls.
+     the size is taken from the first row's poster view (R.id.posterImage),
+     so preloaded images are the same size the rows ask 4.
+    */
+    public static void preload(Activity activity, RecyclerView list, ItemSource items) {
+        ViewPreloadSizeProvider<TmdbPoster> sizes = new ViewPreloadSizeProvider<>();
+
+        list.addOnChildAttachStateChangeListener(new RecyclerView.OnChildAttachStateChangeListener() {
+            @Override
+            public void onChildViewAttachedToWindow(@NonNull View view) {
+                View poster = view.findViewById(R.id.posterImage);
+                if (poster != null) {
+                    sizes.setView(poster);
+                    list.removeOnChildAttachStateChangeListener(this);
+                }
+            }
+
+            @Override
+            public void onChildViewDetachedFromWindow(@NonNull View view) { }
+        });
+
+        ListPreloader.PreloadModelProvider<TmdbPoster> models = new ListPreloader.PreloadModelProvider<TmdbPoster>() {
+            @NonNull
+            @Override
+            public List<TmdbPoster> getPreloadItems(int position) {
+                if (position >= items.getItemCount()) {
+                    return Collections.emptyList();
+                }
+                Movie movie = items.getMovie(position);
+                if (movie == null || movie.getPosterUrl() == null) {
+                    return Collections.emptyList();
+                }
+                return Collections.singletonList(new TmdbPoster(movie.getPosterUrl()));
+            }
+
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(@NonNull TmdbPoster poster) {
+                return Glide.with(activity).load(poster).centerCrop();
+            }
+        };
+
+        list.addOnScrollListener(new RecyclerViewPreloader<>(Glide.with(activity), models, sizes, PRELOAD_ROWS));
+    }
+}
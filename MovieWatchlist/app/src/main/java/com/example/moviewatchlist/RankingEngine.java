@@ -0,0 +1,57 @@
+package com.example.moviewatchlist;
+
+/*
+ RankingEngine computes the "score" the Top 10 is sorted on.
+ raw avgRating lets one 5 star vote beat thousands of 4.8 votes,
+ so the score is a bayesian average: every movie starts with
+ MIN_VOTES imaginary votes at the global mean (the prior),
+ real votes pull it away from there.
+   score = (priorMean * MIN_VOTES + sum) / (MIN_VOTES + count)
+ it is stored on movies/{id} at every roll-up (and rewritten 4 all
+ movies by the daily scores job when the prior moves), so the leaderboard
+ stays one orderBy("score") query with no sorting on the phone.
+ not at rating time: that would write the hot movie doc in every rating
+ transaction again, the contention the shards are there to avoid
+ (ShardedRatingCounter). the trade-off is staleness: another user's
+ rating moves the order at the next roll-up, scheduled every 15 minutes
+ but GitHub Actions starts scheduled runs late under load (often 5-20
+ minutes, sometimes a run is skipped), so expect 15-35 minutes and
+ no hard bound. the rollup job prints the lag of the oldest rating it
+ rolled up. the user's own rating is in their list at once
+ (LeaderboardService.applyAggregate).
+ the prior is one shared value, stats/ratings.mean, written by the scores job.
+ plain java, no android.
+*/
+public final class RankingEngine {
+
+    static final String FIELD_SCORE = "score";
+
+    // votes needed before a movie's own average starts to dominate
+    static final int MIN_VOTES = 10;
+
+    // used until the scores job has stored a real global mean
+    static final double DEFAULT_PRIOR_MEAN = 3.0;
+
+    private static volatile double priorMean = DEFAULT_PRIOR_MEAN;
+
+    private RankingEngine() { }
+
+    public static double getPriorMean() {
+        return priorMean;
+    }
+
+    public static void setPriorMean(double mean) {
+        priorMean = mean;
+    }
+
+    /*
+     Bayesian average 4 a movie with this rating sum and count.
+    */
+    public static double score(double sum, long count) {
+        return score(sum, count, priorMean, MIN_VOTES);
+    }
+
+    public static double score(double sum, long count, double priorMean, int minVotes) {
+        return (priorMean * minVotes + sum) / (minVotes + count);
+    }
+}
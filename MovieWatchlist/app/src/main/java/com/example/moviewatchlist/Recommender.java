@@ -0,0 +1,70 @@
+package com.example.moviewatchlist;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ "Because you liked X": the similar movies the jobs publish in
+ neighbors/{tmdbId} (NeighborsJob, from everyone's watchlist ratings).
+ - one doc read per call, it has the ids, titles and posters already
+ - no other user's ratings or uids ever reach the phone
+ - a movie the jobs have not seen rated yet has no doc, that is no suggestions
+ callbacks on the main thread.
+*/
+public class Recommender {
+
+    static final String NEIGHBORS = "neighbors";
+
+    public interface Callback {
+        void onMovies(List<Movie> movies);
+
+        void onError(Exception e);
+    }
+
+    private static Recommender instance;
+
+    private final FirebaseFirestore db;
+
+    public static Recommender get() {
+        if (instance == null) {
+            instance = new Recommender(AppStartup.firestore());
+        }
+        return instance;
+    }
+
+    Recommender(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    /*
+     Up to limit movies similar to liked, most similar first. main thread.
+    */
+    public void becauseYouLiked(Movie liked, int limit, Callback callback) {
+        db.collection(NEIGHBORS).document(liked.getTmdbId()).get()
+                .addOnSuccessListener(doc -> callback.onMovies(movies(doc, limit)))
+                .addOnFailureListener(callback::onError);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Movie> movies(DocumentSnapshot doc, int limit) {
+        List<Movie> movies = new ArrayList<>();
+        List<String> ids = (List<String>) doc.get("ids");
+        List<String> titles = (List<String>) doc.get("titles");
+        List<String> posters = (List<String>) doc.get("posterUrls");
+        if (ids == null || titles == null || posters == null) {
+            return movies;
+        }
+
+        for (int i = 0; i < ids.size() && movies.size() < limit; i++) {
+            Movie movie = new Movie();
+            movie.setTmdbId(ids.get(i));
+            movie.setTitle(titles.get(i));
+            movie.setPosterUrl(posters.get(i));
+            movies.add(movie);
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.List;
+
+/*
+ LeaderboardService.Saved: the rows in the MovieStore (TOP list),
+ when they came from the server in the shared preferences.
+*/
+public class SavedLeaderboard implements LeaderboardService.Saved {
+
+    private static final String PREFS = "leaderboard";
+    private static final String KEY_SAVED_AT = "savedAt";
+
+    private final MovieStore store;
+    private final SharedPreferences prefs;
+
+    public SavedLeaderboard(Context context) {
+        this.store = MovieStore.get(context);
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public void read(LeaderboardService.SavedCallback callback) {
+        store.readList(MovieRow.TOP, movies -> callback.onSaved(movies, prefs.getLong(KEY_SAVED_AT, 0)));
+    }
+
+    @Override
+    public void write(List<Movie> movies, long savedAt) {
+        store.replaceList(MovieRow.TOP, movies);
+        prefs.edit().putLong(KEY_SAVED_AT, savedAt).apply();
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.moviewatchlist;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/*
+ SearchController is used 4 search-as-you-type.
+ - debounce: only searches after the user stops typing 4 a moment
+ - a new query cancels the call that is still running
+ - the same query twice is only sent once, answered pages are kept in
+   memory only while they are fresh 4 the http cache too (SEARCH_MAX_AGE_SECONDS)
+ - while the real call is still running the local TitleIndex (movies seen
+   before, typo tolerant, works offline) and a cached shorter query
+   filtered locally are shown at once
+ - TMDB results replace them when they land, local movies TMDB did not
+   return are added at the end of a single page answer
+ - further pages of the shown query are loaded on request
+ All listener calls happen on the main thread.
+*/
+public class SearchController {
+
+    static final long DEBOUNCE_MS = 300;
+    static final int MIN_QUERY_LENGTH = 2;
+    private static final int CACHED_QUERIES = 20;
+    private static final long CACHED_MILLIS = TimeUnit.SECONDS.toMillis(TmdbClient.SEARCH_MAX_AGE_SECONDS);
+    static final int LOCAL_RESULTS = 10;
+
+    public interface Listener {
+        /*
+         First page of a query.
+         partial = true when results are a local prefix filter,
+         the network results will follow.
+        */
+        void onResults(String query, TmdbSearchPage page, boolean partial);
+
+        /*
+         A page asked 4 with loadPage.
+        */
+        void onPageLoaded(String query, TmdbSearchPage page);
+
+        void onError(String message);
+    }
+
+    private interface PageHandler {
+        /*
+         receivedAt is when TMDB sent it (okhttp's receivedResponseAtMillis),
+         earlier than now when it came from the http cache.
+        */
+        void onPage(TmdbSearchPage page, long receivedAt);
+    }
+
+    // a first page and when TMDB sent it
+    private static final class Cached {
+        final TmdbSearchPage page;
+        final long receivedAt;
+
+        Cached(TmdbSearchPage page, long receivedAt) {
+            this.page = page;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    private final TmdbClient tmdb;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Cached> results = new LruCache<>(CACHED_QUERIES);
+
+    private Call inFlight;
+    private String inFlightQuery;
+    private String pendingQuery;
+
+    // query on screen and the page call 4 it (one at a time)
+    private String currentQuery;
+    private Call pageCall;
+    private int pageCallNumber;
+
+    private final Runnable debounced = () -> {
+        if (pendingQuery != null) {
+            search(pendingQuery);
+        }
+    };
+
+    public SearchController(TmdbClient tmdb, Listener listener) {
+        this.tmdb = tmdb;
+        this.listener = listener;
+    }
+
+    /*
+     Called from the TextWatcher on every key stroke.
+    */
+    public void onQueryChanged(String text) {
+        String query = normalize(text);
+        mainHandler.removeCallbacks(debounced);
+
+        if (query.length() < MIN_QUERY_LENGTH) {
+            pendingQuery = null;
+            cancelInFlight();
+            return;
+        }
+
+        pendingQuery = query;
+
+        // Instant local answer while we wait 4 the debounce
+        showLocal(query);
+
+        mainHandler.postDelayed(debounced, DEBOUNCE_MS);
+    }
+
+    /*
+     Search button, skips the debounce.
+    */
+    public void searchNow(String text) {
+        mainHandler.removeCallbacks(debounced);
+        search(normalize(text));
+    }
+
+    /*
+     Loads another page of the query on screen.
+     ignored while the same page is loading or if nothing was searched yet.
+    */
+    public void loadPage(int page) {
+        String query = currentQuery;
+        if (query == null || page < 1) {
+            return;
+        }
+        if (pageCall != null) {
+            if (pageCallNumber == page) {
+                return;
+            }
+            pageCall.cancel();
+        }
+
+        Call call = tmdb.newSearchCall(query, page);
+        pageCall = call;
+        pageCallNumber = page;
+
+        enqueue(call, () -> call == pageCall, () -> pageCall = null,
+                (result, receivedAt) -> listener.onPageLoaded(query, result));
+    }
+
+    /*
+     Stops everything, call from onDestroy.
+    */
+    public void cancel() {
+        mainHandler.removeCallbacks(debounced);
+        pendingQuery = null;
+        cancelInFlight();
+        setCurrentQuery(null);
+    }
+
+    private void search(String query) {
+        pendingQuery = null;
+
+        TmdbSearchPage cached = cached(query);
+        if (cached != null) {
+            cancelInFlight();
+            setCurrentQuery(query);
+            listener.onResults(query, withLocal(query, cached), false);
+            return;
+        }
+
+        // Same query already on its way, nothing to do
+        if (inFlight != null && query.equals(inFlightQuery)) {
+            return;
+        }
+
+        cancelInFlight();
+        showLocal(query); // also what is left when offline
+
+        Call call = tmdb.newSearchCall(query);
+        inFlight = call;
+        inFlightQuery = query;
+
+        enqueue(call, () -> call == inFlight, this::clearInFlight, (page, receivedAt) -> {
+            results.put(query, new Cached(page, receivedAt));
+            setCurrentQuery(query);
+            listener.onResults(query, withLocal(query, page), false);
+        });
+    }
+
+    /*
+     Runs a call, parses on the okhttp thread and hands the page
+     to the main thread only if the call is still the current one.
+    */
+    private void enqueue(Call call, BooleanSupplier stillCurrent, Runnable done, PageHandler handler) {
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call c, @NonNull IOException e) {
+                if (c.isCanceled()) {
+                    return;
+                }
+                mainHandler.post(() -> {
+                    if (stillCurrent.getAsBoolean()) {
+                        done.run();
+                        listener.onError("Network error: " + e.getMessage());
+                    }
+                });
+            }
+
+            @Override
+            public void onResponse(@NonNull Call c, @NonNull Response response) {
+                TmdbSearchPage page = null;
+                String error = null;
+
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful() || body == null) {
+                        error = "API error";
+                    } else {
+                        long start = Metrics.begin("tmdb.parse");
+                        try {
+                            page = TmdbMovieParser.parseSearchPage(body.charStream());
+                        } finally {
+                            Metrics.end(Metrics.TMDB_PARSE, start);
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (c.isCanceled()) {
+                        return;
+                    }
+                    e.printStackTrace();
+                    error = "Error parsing movie data";
+                }
+
+                TmdbSearchPage parsed = page;
+                String message = error;
+                long receivedAt = response.receivedResponseAtMillis();
+                mainHandler.post(() -> {
+                    if (!stillCurrent.getAsBoolean()) {
+                        return; // superseded
+                    }
+                    done.run();
+
+                    if (parsed == null) {
+                        listener.onError(message);
+                        return;
+                    }
+                    handler.onPage(parsed, receivedAt);
+                });
+            }
+        });
+    }
+
+    /*
+     Local matches as partial results, the index first.
+     nothing is shown when there are none, the screen keeps what it has.
+    */
+    private void showLocal(String query) {
+        List<Movie> local = TitleIndex.get().search(query, LOCAL_RESULTS);
+        List<Movie> prefix = filterFromPrefix(query);
+        if (prefix != null) {
+            local = merge(local, prefix);
+        }
+        if (local.isEmpty() && prefix == null) {
+            return;
+        }
+        setCurrentQuery(query);
+        listener.onResults(query, new TmdbSearchPage(1, 1, local), true);
+    }
+
+    /*
+     TMDB's first page plus the local matches it did not have.
+     only when TMDB has one page, else they could show up again in a later page.
+    */
+    private TmdbSearchPage withLocal(String query, TmdbSearchPage page) {
+        if (page.getPage() != 1 || page.getTotalPages() > 1) {
+            return page;
+        }
+        List<Movie> local = TitleIndex.get().search(query, LOCAL_RESULTS);
+        if (local.isEmpty()) {
+            return page;
+        }
+        return new TmdbSearchPage(1, 1, merge(page.getMovies(), local));
+    }
+
+    /*
+     first, then the movies of second that are not in first (by tmdbId)
+    */
+    private static List<Movie> merge(List<Movie> first, List<Movie> second) {
+        List<Movie> merged = new ArrayList<>(first);
+        Set<String> ids = new HashSet<>();
+        for (Movie m : first) {
+            ids.add(m.getTmdbId());
+        }
+        for (Movie m : second) {
+            if (ids.add(m.getTmdbId())) {
+                merged.add(m);
+            }
+        }
+        return merged;
+    }
+
+    /*
+     Finds the longest cached query that is a prefix of this one
+     and keeps only titles that still match.
+    */
+    private List<Movie> filterFromPrefix(String query) {
+        for (int end = query.length(); end >= MIN_QUERY_LENGTH; end--) {
+            TmdbSearchPage base = cached(query.substring(0, end));
+            if (base == null) {
+                continue;
+            }
+
+            List<Movie> filtered = new ArrayList<>();
+            for (Movie m : base.getMovies()) {
+                if (m.getTitle() != null
+                        && m.getTitle().toLowerCase(Locale.ROOT).contains(query)) {
+                    filtered.add(m);
+                }
+            }
+            return filtered;
+        }
+        return null;
+    }
+
+    /*
+     The page kept 4 query, null if there is none or TMDB sent it more than
+     CACHED_MILLIS ago (an old one is dropped, the http cache revalidates it).
+    */
+    private TmdbSearchPage cached(String query) {
+        Cached cached = results.get(query);
+        if (cached == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - cached.receivedAt > CACHED_MILLIS) {
+            results.remove(query);
+            return null;
+        }
+        return cached.page;
+    }
+
+    /*
+     A new query on screen makes any running page call useless.
+    */
+    private void setCurrentQuery(String query) {
+        if (pageCall != null && (query == null || !query.equals(currentQuery))) {
+            pageCall.cancel();
+            pageCall = null;
+        }
+        currentQuery = query;
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+        }
+        clearInFlight();
+    }
+
+    private void clearInFlight() {
+        inFlight = null;
+        inFlightQuery = null;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.moviewatchlist;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ Global rating counter 4 movies/{id}, split in shards.
+ - each user has one rating per movie in movies/{id}/ratings/{uid},
+   re-rating only moves the sum by (new - old), the count stays
+ - the difference goes to one random movies/{id}/shards/{n} doc as an
+   increment. the transaction reads only the user's own rating doc and
+   the movie doc (which it writes at most once, see below), so ratings
+   of a hot movie don't fight each other
+ - title / poster go on the rating doc, movies/{id} itself is only
+   written by rollUp, which runs in the jobs module (see Jobs), not on
+   the phone. the phone reads the shards 4 its own view (totals)
+ - a movie that has avgRating / totalRatings from before the shards
+   (no "sharded" flag) gets them seeded into shard 0 once, by the
+   first rating or roll-up that sees it
+ plain java and blocking, the Store is firestore in the app
+ (FirestoreRatingStore), the admin sdk in the jobs, a fake in tests.
+*/
+public class ShardedRatingCounter {
+
+    static final int NUM_SHARDS = 10;
+
+    static final String MOVIES = "movies";
+    static final String SHARDS = "shards";
+    static final String FIELD_SUM = "sum";
+    static final String FIELD_COUNT = "count";
+
+    static final String RATINGS = "ratings";
+    static final String FIELD_STARS = "stars";
+    static final String FIELD_UPDATED_AT = "updatedAt";
+
+    static final String FIELD_AVG_RATING = "avgRating";
+    static final String FIELD_TOTAL_RATINGS = "totalRatings";
+
+    // set on movies/{id} once its old totals are in shard 0
+    static final String FIELD_SHARDED = "sharded";
+
+    static final String STATS = "stats";
+    static final String STATS_RATINGS = "ratings";
+    static final String FIELD_MEAN = "mean";
+
+    // a field value the Store replaces with the server's time
+    static final Object SERVER_TIME = new Object();
+
+    /*
+     Documents by path ("movies/42/shards/3"), fields as plain maps.
+    */
+    public interface Store {
+        // null if the doc is not there
+        Map<String, Object> get(String path) throws IOException;
+
+        // the docs of a collection
+        List<Map<String, Object>> list(String collectionPath) throws IOException;
+
+        /*
+         Runs work as one transaction, again if a doc it read was changed
+         before it could commit. returns what work returned.
+        */
+        <T> T inTransaction(Work<T> work) throws IOException;
+    }
+
+    public interface Work<T> {
+        T run(Tx tx) throws IOException;
+    }
+
+    /*
+     Reads first, then writes (firestore wants it that way round).
+    */
+    public interface Tx {
+        Map<String, Object> get(String path) throws IOException;
+
+        void set(String path, Map<String, Object> fields);
+
+        void merge(String path, Map<String, Object> fields);
+
+        // adds each value to the field (atomic increment), creates the doc if needed
+        void add(String path, Map<String, Number> deltas);
+    }
+
+    /*
+     Sum / count of a movie and the average / score from them.
+    */
+    public static class Totals {
+        public final double sum;
+        public final double avgRating;
+        public final long totalRatings;
+        public final double score;
+
+        Totals(double sum, long count) {
+            this.sum = sum;
+            this.avgRating = count > 0 ? sum / count : 0;
+            this.totalRatings = count;
+            this.score = RankingEngine.score(sum, count);
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put(FIELD_AVG_RATING, avgRating);
+            map.put(FIELD_TOTAL_RATINGS, totalRatings);
+            map.put(RankingEngine.FIELD_SCORE, score);
+            return map;
+        }
+    }
+
+    private final Store store;
+
+    public ShardedRatingCounter(Store store) {
+        this.store = store;
+    }
+
+    /*
+     Reads the global mean the jobs store in stats/ratings,
+     it is the prior 4 the ranking score. keeps the default if missing.
+    */
+    public double loadPriorMean() throws IOException {
+        Map<String, Object> stats = store.get(STATS + "/" + STATS_RATINGS);
+        Object mean = stats != null ? stats.get(FIELD_MEAN) : null;
+        if (mean instanceof Number) {
+            RankingEngine.setPriorMean(((Number) mean).doubleValue());
+        }
+        return RankingEngine.getPriorMean();
+    }
+
+    /*
+     Sets this user's rating 4 the movie, returns the movie's totals after it.
+     the first rating counts +1, a re-rating only changes the sum.
+    */
+    public Totals setUserRating(Movie movie, String uid, double stars) throws IOException {
+        String movieId = movie.getTmdbId();
+        String ratingPath = movieRef(movieId) + "/" + RATINGS + "/" + uid;
+        String shardPath = shardRef(movieId, ThreadLocalRandom.current().nextInt(NUM_SHARDS));
+
+        store.inTransaction(tx -> {
+            Map<String, Object> previous = tx.get(ratingPath);
+            Map<String, Object> movieDoc = tx.get(movieRef(movieId));
+            Object oldStars = previous != null ? previous.get(FIELD_STARS) : null;
+
+            double sumDelta = oldStars instanceof Number ? stars - ((Number) oldStars).doubleValue() : stars;
+            long countDelta = oldStars instanceof Number ? 0 : 1;
+
+            Map<String, Object> rating = new HashMap<>();
+            rating.put("uid", uid);
+            rating.put("tmdbId", movieId);
+            rating.put("title", movie.getTitle());
+            rating.put("posterUrl", movie.getPosterUrl());
+            rating.put(FIELD_STARS, stars);
+            rating.put(FIELD_UPDATED_AT, SERVER_TIME);
+
+            seedLegacy(tx, movieId, movieDoc);
+            tx.set(ratingPath, rating);
+            if (sumDelta != 0 || countDelta != 0) {
+                tx.add(shardPath, shardDelta(sumDelta, countDelta));
+            }
+            return null;
+        });
+        return totals(movieId);
+    }
+
+    /*
+     The movie's totals from its shards, nothing is written.
+     a legacy movie not seeded yet still counts its old totals.
+    */
+    public Totals totals(String movieId) throws IOException {
+        double sum = 0;
+        long count = 0;
+        for (Map<String, Object> shard : store.list(movieRef(movieId) + "/" + SHARDS)) {
+            sum += number(shard.get(FIELD_SUM));
+            count += (long) number(shard.get(FIELD_COUNT));
+        }
+
+        Map<String, Object> movieDoc = store.get(movieRef(movieId));
+        if (isLegacy(movieDoc)) {
+            sum += legacySum(movieDoc);
+            count += (long) number(movieDoc.get(FIELD_TOTAL_RATINGS));
+        }
+        return new Totals(sum, count);
+    }
+
+    /*
+     Sums the shards and stores avgRating / totalRatings / score on
+     movies/{id} (and info, e.g. title / poster, if not null).
+     one transaction that reads every shard, so of two roll-ups at once
+     the later commit has read the later shards, and a rating that lands
+     in between makes it run again.
+    */
+    public Totals rollUp(String movieId, Map<String, Object> info) throws IOException {
+        return store.inTransaction(tx -> {
+            Map<String, Object> movieDoc = tx.get(movieRef(movieId));
+            double sum = 0;
+            long count = 0;
+            for (int n = 0; n < NUM_SHARDS; n++) {
+                Map<String, Object> shard = tx.get(shardRef(movieId, n));
+                if (shard != null) {
+                    sum += number(shard.get(FIELD_SUM));
+                    count += (long) number(shard.get(FIELD_COUNT));
+                }
+            }
+
+            if (isLegacy(movieDoc)) {
+                sum += legacySum(movieDoc);
+                count += (long) number(movieDoc.get(FIELD_TOTAL_RATINGS));
+                seedLegacy(tx, movieId, movieDoc);
+            }
+
+            Totals totals = new Totals(sum, count);
+            Map<String, Object> fields = totals.toMap();
+            if (info != null) {
+                fields.putAll(info);
+            }
+            fields.put("tmdbId", movieId);
+            fields.put(FIELD_SHARDED, true);
+            tx.merge(movieRef(movieId), fields);
+            return totals;
+        });
+    }
+
+    /*
+     Moves old totals into shard 0 and flags the movie, in the caller's
+     transaction (which has read movieDoc). no-op 4 anything else.
+    */
+    private static void seedLegacy(Tx tx, String movieId, Map<String, Object> movieDoc) {
+        if (!isLegacy(movieDoc)) {
+            return;
+        }
+        tx.add(shardRef(movieId, 0),
+                shardDelta(legacySum(movieDoc), (long) number(movieDoc.get(FIELD_TOTAL_RATINGS))));
+        Map<String, Object> flag = new HashMap<>();
+        flag.put(FIELD_SHARDED, true);
+        tx.merge(movieRef(movieId), flag);
+    }
+
+    // has totals from the one-doc counter and they are not in the shards yet
+    static boolean isLegacy(Map<String, Object> movieDoc) {
+        return movieDoc != null
+                && !Boolean.TRUE.equals(movieDoc.get(FIELD_SHARDED))
+                && number(movieDoc.get(FIELD_TOTAL_RATINGS)) > 0;
+    }
+
+    private static double legacySum(Map<String, Object> movieDoc) {
+        return number(movieDoc.get(FIELD_AVG_RATING)) * number(movieDoc.get(FIELD_TOTAL_RATINGS));
+    }
+
+    private static Map<String, Number> shardDelta(double sumDelta, long countDelta) {
+        Map<String, Number> delta = new HashMap<>();
+        delta.put(FIELD_SUM, sumDelta);
+        delta.put(FIELD_COUNT, countDelta);
+        return delta;
+    }
+
+    static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    static String movieRef(String movieId) {
+        return MOVIES + "/" + movieId;
+    }
+
+    static String shardRef(String movieId, int n) {
+        return movieRef(movieId) + "/" + SHARDS + "/" + n;
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.moviewatchlist;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/*
+ On the phone title search over every movie the app has seen
+ (watchlist, search results, top N), works offline.
+ - titles are normalized (lower case, no accents, no punctuation) and cut
+   into trigrams per word ("  m", " ma", "mat", ...), each trigram has the list of
+   titles that contain it
+ - a query counts the trigrams it shares with each title, so typos
+   ("matirx") still find the title, score = shared / all trigrams of both
+ - titles that start with the query, or have a word that does, go first,
+   then titles with a word one typo away (edit distance)
+ - movies are added one at a time as they come in, no rebuild
+ synchronized, search is fast enough 4 the main thread (see TitleIndexBenchmark).
+ plain java, no android.
+*/
+public class TitleIndex {
+
+    static final int DEFAULT_LIMIT = 10;
+
+    private static final TitleIndex SHARED = new TitleIndex();
+
+    /*
+     The app's index, filled by MovieStore.
+    */
+    public static TitleIndex get() {
+        return SHARED;
+    }
+
+    // growable int list, posting lists and slot ids
+    private static final class Ints {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    private static final class Hit implements Comparable<Hit> {
+        final int slot;
+        final double score;
+
+        Hit(int slot, double score) {
+            this.slot = slot;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            return Double.compare(score, other.score);
+        }
+    }
+
+    // slot -> movie, null when the title changed (the movie got a new slot)
+    private final List<Movie> movies = new ArrayList<>();
+    private final List<String> titles = new ArrayList<>();
+    private final Ints gramCounts = new Ints();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Map<String, Ints> postings = new HashMap<>();
+    private int dead;
+
+    // shared counts per slot, reset after each search
+    private int[] counts = new int[0];
+    private final Ints touched = new Ints();
+
+    public synchronized int size() {
+        return slotById.size();
+    }
+
+    /*
+     Drops every title, e.g. on sign out.
+    */
+    public synchronized void clear() {
+        movies.clear();
+        titles.clear();
+        gramCounts.size = 0;
+        slotById.clear();
+        postings.clear();
+        dead = 0;
+    }
+
+    public synchronized void addAll(List<Movie> list) {
+        for (Movie m : list) {
+            add(m);
+        }
+    }
+
+    /*
+     Adds a movie or updates it, a changed title is indexed again.
+    */
+    public synchronized void add(Movie movie) {
+        if (movie == null || movie.getTmdbId() == null || movie.getTitle() == null) {
+            return;
+        }
+        String title = normalize(movie.getTitle());
+        if (title.isEmpty()) {
+            return;
+        }
+
+        Integer slot = slotById.get(movie.getTmdbId());
+        if (slot != null) {
+            if (titles.get(slot).equals(title)) {
+                movies.set(slot, movie); // same title, posting lists stay
+                return;
+            }
+            movies.set(slot, null);
+            dead++;
+        }
+
+        int newSlot = movies.size();
+        movies.add(movie);
+        titles.add(title);
+        slotById.put(movie.getTmdbId(), newSlot);
+
+        Set<String> grams = trigrams(title);
+        gramCounts.add(grams.size());
+        for (String gram : grams) {
+            Ints list = postings.get(gram);
+            if (list == null) {
+                list = new Ints();
+                postings.put(gram, list);
+            }
+            list.add(newSlot);
+        }
+
+        if (dead > 1000 && dead * 2 > movies.size()) {
+            compact();
+        }
+    }
+
+    public List<Movie> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /*
+     Best matches first, at most limit.
+     a title needs a third of the query's trigrams to count as a match.
+    */
+    public synchronized List<Movie> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        if (counts.length < movies.size()) {
+            counts = new int[Math.max(movies.size(), counts.length * 2)];
+        }
+
+        Set<String> grams = trigrams(q);
+        touched.size = 0;
+        for (String gram : grams) {
+            Ints list = postings.get(gram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int slot = list.values[i];
+                if (counts[slot]++ == 0) {
+                    touched.add(slot);
+                }
+            }
+        }
+
+        // 1. trigram score + prefix bonus, keeps the best few candidates
+        int minShared = Math.max(1, (grams.size() + 2) / 3);
+        int keep = Math.max(limit * 4, 40);
+        String wordStart = " " + q;
+        PriorityQueue<Hit> best = new PriorityQueue<>(keep + 1);
+        for (int i = 0; i < touched.size; i++) {
+            int slot = touched.values[i];
+            int shared = counts[slot];
+            counts[slot] = 0;
+            if (shared < minShared || movies.get(slot) == null) {
+                continue;
+            }
+
+            double score = shared / (double) (grams.size() + gramCounts.values[slot] - shared);
+            if (best.size() == keep && score + 1 <= best.peek().score) {
+                continue; // can't make it even with the prefix bonus
+            }
+            String title = titles.get(slot);
+            if (title.startsWith(q)) {
+                score += 1;
+            } else if (title.contains(wordStart)) {
+                score += 0.5;
+            }
+
+            if (best.size() < keep) {
+                best.add(new Hit(slot, score));
+            } else if (score > best.peek().score) {
+                best.poll();
+                best.add(new Hit(slot, score));
+            }
+        }
+
+        // 2. typo bonus (edit distance) only 4 those
+        String[] queryWords = q.split(" ");
+        Hit[] hits = new Hit[best.size()];
+        int n = 0;
+        for (Hit hit : best) {
+            hits[n++] = new Hit(hit.slot, hit.score + 0.5 * typoMatch(queryWords, titles.get(hit.slot)));
+        }
+        Arrays.sort(hits, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            // same score: the shorter title is the closer one
+            return byScore != 0 ? byScore : titles.get(a.slot).length() - titles.get(b.slot).length();
+        });
+
+        List<Movie> result = new ArrayList<>(Math.min(limit, hits.length));
+        for (int i = 0; i < hits.length && i < limit; i++) {
+            result.add(movies.get(hits[i].slot));
+        }
+        return result;
+    }
+
+    /*
+     Lower case, accents and punctuation removed, single spaces.
+    */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(plain.length());
+        boolean space = true;
+        for (int i = 0; i < plain.length(); i++) {
+            char c = plain.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // the accent of é etc.
+            }
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int end = sb.length();
+        if (end > 0 && sb.charAt(end - 1) == ' ') {
+            sb.setLength(end - 1);
+        }
+        return sb.toString();
+    }
+
+    /*
+     Distinct trigrams of each word as "  " + word + " ", so word starts
+     and short queries have trigrams too.
+    */
+    static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String word : text.split(" ")) {
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                grams.add(padded.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    /*
+     0..1, the part of the query words that are a typo away from a title word
+     (one edit, two 4 long words). only words of 4+ letters, shorter ones
+     are too close to everything.
+    */
+    static double typoMatch(String[] queryWords, String title) {
+        String[] titleWords = title.split(" ");
+        int matched = 0;
+        int counted = 0;
+        for (String q : queryWords) {
+            if (q.length() < 4) {
+                continue;
+            }
+            counted++;
+            int maxEdits = q.length() >= 8 ? 2 : 1;
+            for (String w : titleWords) {
+                if (Math.abs(w.length() - q.length()) <= maxEdits && editDistance(q, w, maxEdits) <= maxEdits) {
+                    matched++;
+                    break;
+                }
+            }
+        }
+        return counted == 0 ? 0 : matched / (double) counted;
+    }
+
+    /*
+     Edits (insert, delete, replace, swap of two neighbours) from a to b,
+     stops early once every path is over max.
+    */
+    static int editDistance(String a, String b, int max) {
+        int[] prev2 = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return rowMin;
+            }
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[b.length()];
+    }
+
+    /*
+     Drops the slots of re-titled movies, rebuilds the posting lists.
+    */
+    private void compact() {
+        List<Movie> live = new ArrayList<>(slotById.size());
+        for (Movie m : movies) {
+            if (m != null) {
+                live.add(m);
+            }
+        }
+        movies.clear();
+        titles.clear();
+        gramCounts.size = 0;
+        slotById.clear();
+        postings.clear();
+        dead = 0;
+        for (Movie m : live) {
+            add(m);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.moviewatchlist;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/*
+ TmdbClient is the one shared http client 4 TMDB.
+ - one connection pool / dispatcher 4 the whole app (http2 is reused by okhttp)
+ - disk cache so repeated searches come back without network
+ - cache counters so we can see hits, revalidations and misses
+ - per call timings in Metrics (NetworkMetrics)
+ - TmdbGateway in front: single flight, retries, circuit breaker, stale cache
+ - at most REQUESTS_PER_SECOND to TMDB (token bucket, bursts of BURST)
+*/
+public final class TmdbClient {
+
+    private static final String BASE_URL = "https://api.themoviedb.org/3/";
+    private static final String CACHE_DIR = "tmdb_http";
+    private static final long CACHE_SIZE = 10L * 1024 * 1024;
+
+    /*
+     search results change slowly, fresh 4 10 min.
+     after that okhttp revalidates with etag / last-modified
+    */
+    static final int SEARCH_MAX_AGE_SECONDS = 10 * 60;
+
+    // movie details hardly change, a day (DetailsEnricher keeps them longer on disk)
+    private static final int DETAILS_MAX_AGE_SECONDS = 24 * 60 * 60;
+
+    // TMDB allows about 50 requests a second per ip, we stay under it
+    static final int REQUESTS_PER_SECOND = 40;
+    static final int BURST = 20;
+
+    private static volatile TmdbClient instance;
+
+    private final OkHttpClient http;
+    private final Cache cache;
+    private final HttpUrl baseUrl;
+    private final String apiKey;
+
+    // 304s from TMDB, okhttp counts each as a network request and as a hit
+    private final AtomicInteger revalidated = new AtomicInteger();
+
+    /*
+     Returns the app wide client, created on first use.
+    */
+    public static TmdbClient get(Context context) {
+        if (instance == null) {
+            synchronized (TmdbClient.class) {
+                if (instance == null) {
+                    Context app = context.getApplicationContext();
+                    instance = new TmdbClient(
+                            new File(app.getCacheDir(), CACHE_DIR),
+                            HttpUrl.get(BASE_URL),
+                            app.getString(R.string.tmdb_api_key));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /*
+     Package private so it can be pointed at a local MockWebServer.
+    */
+    TmdbClient(File cacheDir, HttpUrl baseUrl, String apiKey) {
+        this.cache = new Cache(cacheDir, CACHE_SIZE);
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.http = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                .cache(cache)
+                .addInterceptor(new TmdbGateway())
+                .addNetworkInterceptor(new RateLimitInterceptor(new TokenBucket(BURST, REQUESTS_PER_SECOND)))
+                .addNetworkInterceptor(new MaxAgeInterceptor(revalidated))
+                .eventListenerFactory(NetworkMetrics.FACTORY)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /*
+     Builds a /search/movie call. the query is url encoded here.
+    */
+    public Call newSearchCall(String query) {
+        return newSearchCall(query, 1);
+    }
+
+    /*
+     Same as above 4 a given results page (TMDB pages start at 1).
+    */
+    public Call newSearchCall(String query, int page) {
+        HttpUrl url = baseUrl.newBuilder()
+                .addPathSegments("search/movie")
+                .addQueryParameter("api_key", apiKey)
+                .addQueryParameter("query", query)
+                .addQueryParameter("page", String.valueOf(page))
+                .build();
+
+        return http.newCall(new Request.Builder().url(url).build());
+    }
+
+    /*
+     Builds a /movie/{id} call (runtime, genres, release date).
+    */
+    public Call newDetailsCall(String tmdbId) {
+        HttpUrl url = baseUrl.newBuilder()
+                .addPathSegment("movie")
+                .addPathSegment(tmdbId)
+                .addQueryParameter("api_key", apiKey)
+                .build();
+
+        return http.newCall(new Request.Builder().url(url).build());
+    }
+
+    public OkHttpClient getHttpClient() {
+        return http;
+    }
+
+    /*
+     Cache counters, each request is one of
+     - hit: answered from the cache, no network
+     - revalidated: sent with etag / last-modified, TMDB said 304
+     - miss: the whole response came over the network
+     so hits + revalidated + misses = requests (TmdbGateway's only-if-cached
+     lookups that find nothing count in requests only)
+    */
+
+    public int getCacheHitCount() {
+        return cache.hitCount() - revalidated.get();
+    }
+
+    public int getRevalidatedCount() {
+        return revalidated.get();
+    }
+
+    public int getCacheMissCount() {
+        return cache.networkCount() - revalidated.get();
+    }
+
+    public int getRequestCount() {
+        return cache.requestCount();
+    }
+
+    /*
+     Waits 4 a token before a request goes on the network.
+     the thread is a dispatcher thread, never the main thread.
+    */
+    private static class RateLimitInterceptor implements Interceptor {
+        private final TokenBucket bucket;
+
+        RateLimitInterceptor(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            try {
+                bucket.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return chain.proceed(chain.request());
+        }
+    }
+
+    /*
+     TMDB does not always send a usable max-age,
+     so search and details responses get one here before they are stored.
+     counts the 304s on the way.
+    */
+    private static class MaxAgeInterceptor implements Interceptor {
+        private final AtomicInteger revalidated;
+
+        MaxAgeInterceptor(AtomicInteger revalidated) {
+            this.revalidated = revalidated;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            if (response.code() == 304) {
+                revalidated.incrementAndGet(); // only sent 4 a cached response
+            }
+
+            // 304 too, so a revalidated entry keeps the max-age
+            boolean cacheable = response.isSuccessful() || response.code() == 304;
+            int maxAge = maxAgeFor(chain.request().url().encodedPath());
+            if (maxAge == 0 || !cacheable) {
+                return response;
+            }
+
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", "public, max-age=" + maxAge)
+                    .build();
+        }
+
+        private static int maxAgeFor(String path) {
+            if (path.endsWith("/search/movie")) {
+                return SEARCH_MAX_AGE_SECONDS;
+            }
+            if (path.matches(".*/movie/\\d+")) {
+                return DETAILS_MAX_AGE_SECONDS;
+            }
+            return 0;
+        }
+    }
+}
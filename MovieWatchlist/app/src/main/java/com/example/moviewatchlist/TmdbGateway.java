@@ -0,0 +1,285 @@
+package com.example.moviewatchlist;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/*
+ TmdbGateway is the okhttp application interceptor in front of TMDB.
+ only GET calls (idempotent, safe to repeat), the rest go straight through.
+ - single flight: the same url already on its way is not sent again,
+   the waiting calls get a copy of its response. the body is only read
+   into memory 4 that, a call nobody joined streams it to its caller
+ - retries: network errors, 429 and 5xx are tried MAX_ATTEMPTS times with
+   exponential backoff + full jitter (Retry-After on 429 if it is short)
+ - circuit breaker: after FAILURES_TO_OPEN failed calls in a row TMDB is
+   not asked 4 OPEN_MILLIS, calls answer at once from the disk cache
+   (stale is fine) or fail with "TMDB is unavailable"
+ - a call that still fails after the retries gets the stale cache too
+ the rate limit (TokenBucket) is a network interceptor in TmdbClient,
+ so cache hits don't use tokens.
+*/
+final class TmdbGateway implements Interceptor {
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long BASE_BACKOFF_MS = 250;
+    static final long MAX_BACKOFF_MS = 4000;
+
+    static final int FAILURES_TO_OPEN = 5;
+    static final long OPEN_MILLIS = 30_000;
+
+    // how old a cached answer can be when TMDB is down
+    private static final int STALE_DAYS = 7;
+
+    // followers check this often if their own call was canceled
+    private static final long WAIT_SLICE_MS = 100;
+
+    /*
+     A response with its body read, so it can be handed to every waiting call.
+    */
+    private static final class Shared {
+        final Response head;
+        final byte[] body;
+        final MediaType contentType;
+
+        Shared(Response response) throws IOException {
+            ResponseBody original = response.body();
+            this.contentType = original != null ? original.contentType() : null;
+            this.body = original != null ? original.bytes() : new byte[0]; // closes it
+            this.head = response.newBuilder().body(null).build();
+        }
+
+        Response copyFor(Request request) {
+            return head.newBuilder()
+                    .request(request)
+                    .body(ResponseBody.create(body, contentType))
+                    .build();
+        }
+    }
+
+    /*
+     The call that is fetching a url, result is completed with null if it was canceled.
+     followers only changes inside inFlight.compute, so once the leader has
+     taken it out of inFlight nobody else can join.
+    */
+    private static final class Flight {
+        final CompletableFuture<Shared> result = new CompletableFuture<>();
+        int followers;
+    }
+
+    private final CircuitBreaker breaker;
+
+    // url -> the call that is fetching it
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    TmdbGateway() {
+        this(new CircuitBreaker(FAILURES_TO_OPEN, OPEN_MILLIS));
+    }
+
+    TmdbGateway(CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    CircuitBreaker.State state() {
+        return breaker.state();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"GET".equals(request.method())) {
+            return chain.proceed(request);
+        }
+
+        String key = request.url().toString();
+        Flight mine = new Flight();
+        Flight leader = inFlight.compute(key, (url, running) -> {
+            if (running == null) {
+                return mine;
+            }
+            running.followers++;
+            return running;
+        });
+
+        if (leader != mine) {
+            Shared shared = await(leader.result, chain);
+            if (shared != null) {
+                return shared.copyFor(request);
+            }
+            return fetch(chain); // the leader was canceled, ask ourselves
+        }
+
+        try {
+            Response response = fetch(chain);
+            inFlight.remove(key, mine);
+            if (mine.followers == 0) {
+                return response; // nobody waits, the body is not buffered
+            }
+            Shared shared = new Shared(response);
+            mine.result.complete(shared);
+            return shared.copyFor(request);
+        } catch (IOException | RuntimeException e) {
+            if (chain.call().isCanceled()) {
+                mine.result.complete(null);
+            } else {
+                mine.result.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /*
+     Waits 4 the leader's response, null if the leader was canceled.
+    */
+    private static Shared await(CompletableFuture<Shared> leader, Chain chain) throws IOException {
+        while (true) {
+            if (chain.call().isCanceled()) {
+                throw new IOException("Canceled");
+            }
+            try {
+                return leader.get(WAIT_SLICE_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // still running
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /*
+     The breaker, the retries and the stale cache 4 one call.
+    */
+    private Response fetch(Chain chain) throws IOException {
+        if (!breaker.allowRequest()) {
+            return staleOrFail(chain, null);
+        }
+
+        boolean reported = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                Response response = null;
+                IOException failure = null;
+                try {
+                    response = chain.proceed(chain.request());
+                } catch (IOException e) {
+                    if (chain.call().isCanceled()) {
+                        throw e;
+                    }
+                    failure = e;
+                }
+
+                if (response != null && !retryable(response.code())) {
+                    breaker.onSuccess(); // 4xx too, TMDB answered
+                    reported = true;
+                    return response;
+                }
+
+                long delay = attempt < MAX_ATTEMPTS ? backoffMillis(attempt, response) : -1;
+                if (delay < 0) {
+                    breaker.onFailure();
+                    reported = true;
+                    if (response == null) {
+                        return staleOrFail(chain, failure);
+                    }
+                    // read and closed first, okhttp wont proceed while a response is open
+                    Shared failed = new Shared(response);
+                    Response stale = stale(chain);
+                    if (stale == null) {
+                        return failed.copyFor(chain.request()); // the caller sees the error code
+                    }
+                    return stale;
+                }
+
+                if (response != null) {
+                    response.close();
+                }
+                sleep(delay);
+            }
+        } finally {
+            if (!reported) {
+                breaker.onAbandoned();
+            }
+        }
+    }
+
+    static boolean retryable(int code) {
+        return code == 429 || code >= 500;
+    }
+
+    /*
+     Full jitter: random between 0 and BASE_BACKOFF_MS * 2^(attempt-1), capped.
+     a 429's Retry-After wins if it is longer, -1 if it is too long to wait.
+    */
+    static long backoffMillis(int attempt, Response response) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 16));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+
+        String retryAfter = response != null && response.code() == 429 ? response.header("Retry-After") : null;
+        if (retryAfter != null) {
+            try {
+                long asked = Long.parseLong(retryAfter.trim()) * 1000;
+                if (asked > MAX_BACKOFF_MS) {
+                    return -1;
+                }
+                delay = Math.max(delay, asked);
+            } catch (NumberFormatException ignored) {
+                // an http date, use our own backoff
+            }
+        }
+        return delay;
+    }
+
+    private static Response staleOrFail(Chain chain, IOException failure) throws IOException {
+        Response stale = stale(chain);
+        if (stale != null) {
+            return stale;
+        }
+        throw new IOException("TMDB is unavailable right now", failure);
+    }
+
+    /*
+     The cached answer however old (up to STALE_DAYS), null if there is none.
+    */
+    private static Response stale(Chain chain) throws IOException {
+        Request cachedOnly = chain.request().newBuilder()
+                .cacheControl(new CacheControl.Builder()
+                        .onlyIfCached()
+                        .maxStale(STALE_DAYS, TimeUnit.DAYS)
+                        .build())
+                .build();
+
+        Response response = chain.proceed(cachedOnly);
+        if (response.code() == 504) { // okhttp: not in the cache
+            response.close();
+            return null;
+        }
+        return response;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
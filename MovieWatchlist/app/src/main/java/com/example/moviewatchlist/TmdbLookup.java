@@ -0,0 +1,117 @@
+package com.example.moviewatchlist;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/*
+ Title -> TMDB movie 4 imports, blocking, call it on a background thread.
+ - LRU cache of the last CACHE_SIZE titles (misses too), imports from
+   other services repeat titles a lot
+ - at most maxPerSecond search calls, callers wait 4 their turn
+   (under TmdbClient's own limit, so the search screen still gets
+   requests out during an import)
+ - an exact title match wins, else TMDB's first result
+*/
+public class TmdbLookup {
+
+    static final int CACHE_SIZE = 2000;
+    static final int DEFAULT_MAX_PER_SECOND = 20;
+
+    // cached "not found"
+    private static final Movie NOT_FOUND = new Movie();
+
+    /*
+     A /search/movie call 4 a title, TmdbClient in the app, a MockWebServer in tests.
+    */
+    interface Search {
+        Call newCall(String title);
+    }
+
+    private final Search calls;
+    private final long intervalNanos;
+
+    private final Map<String, Movie> cache = new LinkedHashMap<String, Movie>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Movie> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private long nextCallNanos;
+
+    public TmdbLookup(TmdbClient client) {
+        this(client, DEFAULT_MAX_PER_SECOND);
+    }
+
+    public TmdbLookup(TmdbClient client, int maxPerSecond) {
+        this(client::newSearchCall, maxPerSecond);
+    }
+
+    TmdbLookup(Search search, int maxPerSecond) {
+        this.calls = search;
+        this.intervalNanos = 1_000_000_000L / maxPerSecond;
+    }
+
+    /*
+     The TMDB movie 4 this title, null if TMDB has none.
+     throws if TMDB did not answer (non 2xx, no network), that is not cached.
+    */
+    public Movie find(String title) throws IOException, InterruptedException {
+        String key = title.trim().toLowerCase(Locale.ROOT);
+
+        synchronized (cache) {
+            Movie hit = cache.get(key);
+            if (hit != null) {
+                return hit == NOT_FOUND ? null : hit;
+            }
+        }
+
+        waitForTurn();
+        Movie found = search(title.trim());
+
+        synchronized (cache) {
+            cache.put(key, found != null ? found : NOT_FOUND);
+        }
+        return found;
+    }
+
+    private Movie search(String title) throws IOException {
+        try (Response response = calls.newCall(title).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("TMDB search failed: " + response.code());
+            }
+
+            List<Movie> results = TmdbMovieParser.parseSearchResults(body.charStream());
+            for (Movie m : results) {
+                if (title.equalsIgnoreCase(m.getTitle())) {
+                    return m;
+                }
+            }
+            return results.isEmpty() ? null : results.get(0);
+        }
+    }
+
+    /*
+     Spaces the calls intervalNanos apart.
+    */
+    private void waitForTurn() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextCallNanos);
+            nextCallNanos = slot + intervalNanos;
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.moviewatchlist;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ Streaming parser 4 TMDB search and movie details responses.
+ reads straight from the response, no json tree and no full body string.
+ search: only id, title and poster_path are kept, everything else is skipped.
+ details: runtime, genres and the release year.
+*/
+public final class TmdbMovieParser {
+
+    static final String POSTER_BASE_URL = "https://image.tmdb.org/t/p/w500";
+
+    private TmdbMovieParser() { }
+
+    /*
+     Parses the "results" array of a /search/movie response.
+     Safe to call on a background thread.
+    */
+    public static List<Movie> parseSearchResults(Reader source) throws IOException {
+        return parseSearchPage(source).getMovies();
+    }
+
+    /*
+     Same as above but also keeps page and total_pages.
+    */
+    public static TmdbSearchPage parseSearchPage(Reader source) throws IOException {
+        List<Movie> movies = new ArrayList<>();
+        int page = 1;
+        int totalPages = 1;
+
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "results":
+                        readResults(reader, movies);
+                        break;
+                    case "page":
+                        page = reader.nextInt();
+                        break;
+                    case "total_pages":
+                        totalPages = reader.nextInt();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+
+        return new TmdbSearchPage(page, totalPages, movies);
+    }
+
+    private static void readResults(JsonReader reader, List<Movie> movies) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Movie movie = readMovie(reader);
+
+            // TMDB sometimes has entries without title or id
+            if (movie.getTmdbId() != null && movie.getTitle() != null) {
+                movies.add(movie);
+            }
+        }
+        reader.endArray();
+    }
+
+    private static Movie readMovie(JsonReader reader) throws IOException {
+        Movie movie = new Movie();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "id":
+                    // id is a number in json, nextString keeps it as text
+                    movie.setTmdbId(reader.nextString());
+                    break;
+                case "title":
+                    movie.setTitle(reader.nextString());
+                    break;
+                case "poster_path":
+                    movie.setPosterUrl(POSTER_BASE_URL + reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        // Default user rating is 0
+        movie.setRating(0);
+        return movie;
+    }
+
+    /*
+     Parses a /movie/{id} response, fetchedAt is stored with it.
+    */
+    public static MovieDetails parseDetails(Reader source, long fetchedAt) throws IOException {
+        String id = null;
+        int runtime = 0;
+        int year = 0;
+        List<String> genres = new ArrayList<>();
+
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+
+                switch (name) {
+                    case "id":
+                        id = reader.nextString();
+                        break;
+                    case "runtime":
+                        runtime = reader.nextInt();
+                        break;
+                    case "release_date":
+                        year = yearOf(reader.nextString());
+                        break;
+                    case "genres":
+                        readGenres(reader, genres);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+
+        if (id == null) {
+            throw new IOException("TMDB details without id");
+        }
+        return new MovieDetails(id, runtime, genres, year, fetchedAt);
+    }
+
+    // [{"id":28,"name":"Action"}, ...]
+    private static void readGenres(JsonReader reader, List<String> genres) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("name") && reader.peek() == JsonToken.STRING) {
+                    genres.add(reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+    }
+
+    // "2010-07-15" -> 2010, 0 if empty or odd
+    private static int yearOf(String date) {
+        if (date.length() < 4) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(date.substring(0, 4));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
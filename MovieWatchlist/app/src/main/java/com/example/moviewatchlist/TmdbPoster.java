@@ -0,0 +1,67 @@
+package com.example.moviewatchlist;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/*
+ Glide model 4 a TMDB poster.
+ holds the stored poster url (always w500), TmdbPosterLoader
+ swaps the size part 4 the smallest TMDB size that fits the view.
+*/
+public final class TmdbPoster {
+
+    private static final String SIZE_PREFIX = "/t/p/";
+
+    // widths TMDB serves posters in (px)
+    static final int[] WIDTHS = {92, 154, 185, 342, 500, 780};
+
+    private final String url;
+
+    public TmdbPoster(@NonNull String url) {
+        this.url = url;
+    }
+
+    /*
+     Url of the smallest size that is at least widthPx wide.
+     urls that are not TMDB sized urls (or no size, SIZE_ORIGINAL)
+     are returned as they are.
+    */
+    public String urlForWidth(int widthPx) {
+        int start = url.indexOf(SIZE_PREFIX);
+        if (start < 0 || widthPx <= 0) {
+            return url;
+        }
+        start += SIZE_PREFIX.length();
+        int end = url.indexOf('/', start);
+        if (end < 0) {
+            return url;
+        }
+        return url.substring(0, start) + sizeFor(widthPx) + url.substring(end);
+    }
+
+    static String sizeFor(int widthPx) {
+        for (int w : WIDTHS) {
+            if (w >= widthPx) {
+                return "w" + w;
+            }
+        }
+        return "w" + WIDTHS[WIDTHS.length - 1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TmdbPoster && ((TmdbPoster) o).url.equals(url);
+    }
+
+    @Override
+    public int hashCode() {
+        return url.hashCode();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return url;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.moviewatchlist;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelCache;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.load.model.stream.BaseGlideUrlLoader;
+
+import java.io.InputStream;
+
+/*
+ Glide loader 4 TmdbPoster.
+ glide passes the measured size of the target view,
+ so each list downloads the poster size it really shows.
+*/
+public class TmdbPosterLoader extends BaseGlideUrlLoader<TmdbPoster> {
+
+    TmdbPosterLoader(ModelLoader<GlideUrl, InputStream> concreteLoader, ModelCache<TmdbPoster, GlideUrl> cache) {
+        super(concreteLoader, cache);
+    }
+
+    @Override
+    protected String getUrl(TmdbPoster model, int width, int height, Options options) {
+        return model.urlForWidth(width);
+    }
+
+    @Override
+    public boolean handles(@NonNull TmdbPoster model) {
+        return true;
+    }
+
+    public static class Factory implements ModelLoaderFactory<TmdbPoster, InputStream> {
+
+        private final ModelCache<TmdbPoster, GlideUrl> cache = new ModelCache<>(500);
+
+        @NonNull
+        @Override
+        public ModelLoader<TmdbPoster, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new TmdbPosterLoader(multiFactory.build(GlideUrl.class, InputStream.class), cache);
+        }
+
+        @Override
+        public void teardown() { }
+    }
+}
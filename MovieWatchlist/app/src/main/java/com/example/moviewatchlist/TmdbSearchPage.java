@@ -0,0 +1,36 @@
+package com.example.moviewatchlist;
+
+import java.util.List;
+
+/*
+ One page of a TMDB /search/movie response.
+ pages start at 1 like in the TMDB api.
+*/
+public class TmdbSearchPage {
+
+    private final int page;
+    private final int totalPages;
+    private final List<Movie> movies;
+
+    public TmdbSearchPage(int page, int totalPages, List<Movie> movies) {
+        this.page = page;
+        this.totalPages = totalPages;
+        this.movies = movies;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    public boolean hasNextPage() {
+        return page < totalPages;
+    }
+}
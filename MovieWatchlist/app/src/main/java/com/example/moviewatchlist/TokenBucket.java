@@ -0,0 +1,58 @@
+package com.example.moviewatchlist;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/*
+ Token bucket rate limiter.
+ holds up to capacity tokens, refilled at perSecond, a call takes one token
+ or waits 4 it. so short bursts go out at once and the long run rate
+ never goes over perSecond.
+ thread safe, plain java.
+*/
+public class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier clock;
+
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(int capacity, int perSecond) {
+        this(capacity, perSecond, System::nanoTime);
+    }
+
+    TokenBucket(int capacity, int perSecond, LongSupplier clock) {
+        this.capacity = capacity;
+        this.tokensPerNano = perSecond / 1e9;
+        this.clock = clock;
+        this.tokens = capacity;
+        this.refilledAt = clock.getAsLong();
+    }
+
+    /*
+     Takes a token, waits until there is one.
+    */
+    public void acquire() throws InterruptedException {
+        long wait;
+        while ((wait = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /*
+     0 if a token was taken, else the nanos until the next one.
+    */
+    synchronized long tryAcquire() {
+        long now = clock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+}
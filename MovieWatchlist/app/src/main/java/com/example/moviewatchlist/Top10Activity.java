@@ -2,11 +2,10 @@ package com.example.moviewatchlist;
 
 import android.os.Bundle;
 import android.widget.Toast;
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import com.google.firebase.firestore.*;
-import java.util.ArrayList;
 import java.util.List;
 
 /*
@@ -16,8 +15,7 @@ public class Top10Activity extends AppCompatActivity {
 
     private RecyclerView recyclerView;
     private Top10Adapter adapter;
-    private List<Movie> topMovies = new ArrayList<>();
-    private FirebaseFirestore db;
+    private LeaderboardService leaderboard;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -28,8 +26,9 @@ public class Top10Activity extends AppCompatActivity {
         androidx.appcompat.widget.Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
 
+        leaderboard = LeaderboardService.get(this);
+
         if (getSupportActionBar() != null) {
-            getSupportActionBar().setTitle("Top 10 Movies");
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
 
@@ -38,43 +37,52 @@ public class Top10Activity extends AppCompatActivity {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
 
-        adapter = new Top10Adapter(topMovies);
+        adapter = new Top10Adapter();
         recyclerView.setAdapter(adapter);
-
-        // Initialize Firestore
-        db = FirebaseFirestore.getInstance();
-
-        // Load top 10 movies from Firestore
+        PosterLoader.preload(this, recyclerView, adapter);
+
+        // More than 10 when the user scrolls to the end
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                if (!rv.canScrollVertically(1) && adapter.getItemCount() >= leaderboard.getLimit()
+                        && leaderboard.loadMore() && getSupportActionBar() != null) {
+                    getSupportActionBar().setTitle("Top " + leaderboard.getLimit() + " Movies");
+                }
+            }
+        });
+
+        // Load top movies, always starts at the first N
         loadTopMovies();
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Top " + leaderboard.getLimit() + " Movies");
+        }
     }
 
     /*
-      Load top 10 movies from Firestore
-      Sorts by avgRating
+      Load top movies from the leaderboard service.
+      it shows the saved list first, then live updates.
     */
     private void loadTopMovies() {
-        db.collection("movies")
-                .orderBy("avgRating", Query.Direction.DESCENDING)
-                .limit(10)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-
-                    topMovies.clear();
-
-                    // Convert Firestore docs into Movie objects
-                    for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                        Movie movie = doc.toObject(Movie.class);
-                        topMovies.add(movie);
-                    }
-
-
-                    adapter.notifyDataSetChanged();
-                })
-                .addOnFailureListener(e ->
-                        Toast.makeText(this, "Failed to load top 10: " + e.getMessage(), Toast.LENGTH_SHORT).show()
-                );
+        leaderboard.start(new LeaderboardService.Listener() {
+            @Override
+            public void onLeaderboard(List<Movie> movies) {
+                adapter.submitList(movies);
+                DetailsEnricher.get(Top10Activity.this).prefetch(movies);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(Top10Activity.this, "Failed to load top 10: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        leaderboard.stop();
+    }
 
     @Override
     public boolean onSupportNavigateUp() {
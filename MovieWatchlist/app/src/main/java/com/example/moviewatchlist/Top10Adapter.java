@@ -8,21 +8,18 @@ import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-
-import java.util.List;
-
 /*
  this adapter is for UI elements for Top10 page
 */
-public class Top10Adapter extends RecyclerView.Adapter<Top10Adapter.ViewHolder> {
-
-    private final List<Movie> movies;
+public class Top10Adapter extends ListAdapter<Movie, Top10Adapter.ViewHolder>
+        implements PosterLoader.ItemSource {
 
-    public Top10Adapter(List<Movie> movies) {
-        this.movies = movies;
+    public Top10Adapter() {
+        super(new MovieDiffCallback());
+        setHasStableIds(true);
     }
 
 
@@ -37,33 +34,36 @@ public class Top10Adapter extends RecyclerView.Adapter<Top10Adapter.ViewHolder>
 
     @Override
     public void onBindViewHolder(@NonNull Top10Adapter.ViewHolder holder, int position) {
-        Movie m = movies.get(position);
+        long bindStart = Metrics.begin("bind.top");
+        Movie m = getItem(position);
 
 
         holder.title.setText(m.getTitle());
+        DetailsEnricher.get(holder.itemView.getContext()).bind(holder.details, m);
 
 
         holder.ratingBar.setRating((float) m.getAvgRating());
 
 
-        Glide.with(holder.itemView.getContext())
-                .load(m.getPosterUrl())
-                .placeholder(R.drawable.placeholder) // shown while loading / if null
-                .into(holder.poster);
+        PosterLoader.load(holder.poster, m.getPosterUrl()); // placeholder while loading / if null
+        Metrics.end(Metrics.BIND_TOP, bindStart);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return MovieDiffCallback.stableId(getItem(position));
     }
 
-    /*
-     Returns how many movies are displayed.
-    */
     @Override
-    public int getItemCount() {
-        return movies.size();
+    public Movie getMovie(int position) {
+        return getItem(position);
     }
 
 
     static class ViewHolder extends RecyclerView.ViewHolder {
         ImageView poster;
         TextView title;
+        TextView details;
         RatingBar ratingBar;
 
         ViewHolder(@NonNull View itemView) {
@@ -71,6 +71,7 @@ public class Top10Adapter extends RecyclerView.Adapter<Top10Adapter.ViewHolder>
 
             poster = itemView.findViewById(R.id.posterImage);
             title = itemView.findViewById(R.id.movieTitle);
+            details = itemView.findViewById(R.id.movieDetails);
             ratingBar = itemView.findViewById(R.id.movieRatingBar);
         }
     }
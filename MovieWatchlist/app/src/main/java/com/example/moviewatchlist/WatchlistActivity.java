@@ -1,30 +1,87 @@
 package com.example.moviewatchlist;
 
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
 import android.os.Bundle;
+import android.provider.OpenableColumns;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.ViewTreeObserver;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
 import androidx.annotation.NonNull;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.*;
 
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /*
  WatchlistActivity is for the users watchlist
 */
 public class WatchlistActivity extends AppCompatActivity {
 
+    private static final String PREFS = "watchlist";
+
+    // load the next page when this many rows are left
+    static final int PREFETCH_ROWS = 10;
+
+    // menu items in Sort / Filter order
+    private static final int[] SORT_ITEMS = {
+            R.id.actionSortTitle, R.id.actionSortRating, R.id.actionSortAdded};
+    private static final int[] FILTER_ITEMS = {
+            R.id.actionFilterAll, R.id.actionFilterUnrated, R.id.actionFilterRated,
+            R.id.actionFilter3, R.id.actionFilter4, R.id.actionFilter5};
+
     private RecyclerView recyclerView;
     private WatchlistAdapter adapter;
-    private List<Movie> watchlist;
     private FirebaseFirestore db;
     private String userId;
 
+    // snapshots are turned into Movie objects here, not on the main thread
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor();
+
+    // pages of the sorted / filtered query
+    private WatchlistPager pager;
+
+    // sort + filter picked in the menu, kept in PREFS
+    private WatchlistQuery query = WatchlistQuery.DEFAULT;
+
+    private MovieStore store;
+
+    private ListenerRegistration summaryRegistration;
+
+    // "because you liked": movies rated this high, this many suggestions
+    static final int LIKED_STARS = 4;
+    static final int SUGGESTIONS = 10;
+
+    // import / export run here, one at a time
+    private final ExecutorService transferExecutor = Executors.newSingleThreadExecutor();
+
+    private final ActivityResultLauncher<String[]> importPicker =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importFrom);
+
+    private final ActivityResultLauncher<String> exportPicker =
+            registerForActivityResult(new ActivityResultContracts.CreateDocument(WatchlistFormat.NDJSON.mimeType()), this::exportTo);
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -42,52 +99,372 @@ public class WatchlistActivity extends AppCompatActivity {
         recyclerView = findViewById(R.id.watchlistRecycler);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
-        watchlist = new ArrayList<>();
-        adapter = new WatchlistAdapter(this, watchlist); // passes activity context + data list
+        adapter = new WatchlistAdapter(this); // rows come from snapshot deltas
         recyclerView.setAdapter(adapter);
+        PosterLoader.preload(this, recyclerView, adapter);
+
+        // long press to pick several, then remove or rate them together
+        adapter.setSelection(new MultiSelection(this, R.menu.menu_select_watchlist, this::onBulkAction));
+
+        pager = new WatchlistPager(snapshotExecutor, pagerListener);
+
+        // next page when the last PREFETCH_ROWS rows come into view
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (dy > 0 && lm.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_ROWS) {
+                    pager.loadMore();
+                }
+            }
+        });
 
         // Firestore
-        db = FirebaseFirestore.getInstance();
-        userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        db = AppStartup.firestore();
+        userId = AppStartup.auth().getCurrentUser().getUid();
+        store = MovieStore.get(this);
+        query = readQuery();
 
+        // header counts from one summary doc, not the whole collection
+        summaryRegistration = WatchlistSummary.listen(db, userId, this::showSummary);
 
         loadWatchlist();
     }
 
     /*
-     update watchlist
+     update watchlist.
+     the saved rows are shown first (offline / cold start),
+     the first page (sorted and filtered by firestore) replaces them with one diff,
+     after that only the changed documents are deserialized (on snapshotExecutor),
+     then the main thread applies them to the adapter.
+     more pages are loaded while scrolling, see WatchlistPager.
+     every change is also saved in the MovieStore.
     */
     private void loadWatchlist() {
-        db.collection("users")
+        // queued before the first page, so it runs before its snapshot
+        snapshotExecutor.execute(() -> {
+            List<Movie> savedRows = store.readListNow(MovieRow.WATCHLIST);
+            pager.seed(savedRows);
+            List<WatchlistIndex.Change> seed = new ArrayList<>();
+            for (int i = 0; i < savedRows.size(); i++) {
+                seed.add(WatchlistIndex.Change.added(i, savedRows.get(i)));
+            }
+            runOnUiThread(() -> adapter.applyChanges(seed));
+        });
+
+        pager.start(query.on(watchlist()));
+    }
+
+    private CollectionReference watchlist() {
+        return db.collection("users")
                 .document(userId)
-                .collection("watchlist")
-                .addSnapshotListener((snapshots, e) -> {
+                .collection("watchlist");
+    }
+
+    /*
+     pager callbacks, on snapshotExecutor.
+    */
+    private final WatchlistPager.Listener pagerListener = new WatchlistPager.Listener() {
+        @Override
+        public void onReset(List<Movie> oldRows, List<Movie> newRows, long received) {
+            DiffUtil.DiffResult diff = WatchlistIndex.diff(oldRows, newRows);
+
+            store.replaceList(MovieRow.WATCHLIST, newRows);
+            DetailsEnricher.get(WatchlistActivity.this).prefetch(newRows);
+            runOnUiThread(() -> {
+                adapter.replaceAll(newRows, diff);
+                recyclerView.scrollToPosition(0);
+                recordRender(received);
+            });
+        }
 
+        @Override
+        public void onChanges(List<WatchlistIndex.Change> changes, long received) {
+            store.applyWatchlistChanges(changes);
+            DetailsEnricher.get(WatchlistActivity.this).prefetch(added(changes));
+            runOnUiThread(() -> {
+                adapter.applyChanges(changes);
+                recordRender(received);
+            });
+        }
+
+        @Override
+        public void onError(Exception e) {
+            runOnUiThread(() ->
+                    Toast.makeText(WatchlistActivity.this, "Error loading watchlist: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        }
+    };
+
+    // movies of ADDED changes, e.g. a new page
+    private static List<Movie> added(List<WatchlistIndex.Change> changes) {
+        List<Movie> movies = new ArrayList<>();
+        for (WatchlistIndex.Change c : changes) {
+            if (c.type == DocumentChange.Type.ADDED) {
+                movies.add(c.movie);
+            }
+        }
+        return movies;
+    }
 
-                    if (e != null) {
-                        Toast.makeText(this, "Error loading watchlist: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        return;
-                    }
+    /*
+     snapshot -> rows on screen, measured at the next pre-draw
+     (after the layout pass the adapter change asked 4).
+    */
+    private void recordRender(long received) {
+        ViewTreeObserver observer = recyclerView.getViewTreeObserver();
+        observer.addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                recyclerView.getViewTreeObserver().removeOnPreDrawListener(this);
+                Metrics.WATCHLIST_SNAPSHOT_TO_RENDER.recordSince(received);
+                return true;
+            }
+        });
+        recyclerView.invalidate();
+    }
 
-                    // Update list
-                    if (snapshots != null) {
-                        watchlist.clear();
+    /*
+     bulk remove / rate. the rows change right away (firestore local cache)
+     and come back by themselves if the server rejects the batch.
+    */
+    private void onBulkAction(int itemId, List<Movie> movies) {
+        if (itemId == R.id.actionRemoveSelected) {
+            WatchlistBulk.remove(movies)
+                    .addOnSuccessListener(aVoid -> toast("Removed " + movies.size() + " movies from Watchlist"))
+                    .addOnFailureListener(e -> toast("Error removing movies: " + e.getMessage()));
+            return;
+        }
 
-                        for (DocumentSnapshot doc : snapshots.getDocuments()) {
-                            Movie movie = doc.toObject(Movie.class);
+        int stars = starsFor(itemId);
+        if (stars > 0) {
+            WatchlistBulk.rate(movies, stars)
+                    .addOnSuccessListener(aVoid -> toast("Rated " + movies.size() + " movies"))
+                    .addOnFailureListener(e -> toast("Error rating movies: " + e.getMessage()));
+        }
+    }
 
+    /*
+     menu item -> stars, 0 if it is not a rate item
+    */
+    private static int starsFor(int itemId) {
+        int[] rateItems = {R.id.actionRate1, R.id.actionRate2, R.id.actionRate3, R.id.actionRate4, R.id.actionRate5};
+        return indexOf(rateItems, itemId) + 1;
+    }
 
-                            if (movie != null) {
-                                watchlist.add(movie);
-                            }
-                        }
+    /*
+     "Because you liked X", X = the best rated movie on screen.
+     picking one adds it to the watchlist.
+    */
+    private void suggest() {
+        Movie liked = null;
+        for (int i = 0; i < adapter.getItemCount(); i++) {
+            Movie m = adapter.getMovie(i);
+            if (m.getRating() >= LIKED_STARS && (liked == null || m.getRating() > liked.getRating())) {
+                liked = m;
+            }
+        }
+        if (liked == null) {
+            toast("Rate a movie " + LIKED_STARS + " stars or more first");
+            return;
+        }
 
+        Movie source = liked;
+        Recommender.get().becauseYouLiked(source, SUGGESTIONS, new Recommender.Callback() {
+            @Override
+            public void onMovies(List<Movie> movies) {
+                if (isFinishing()) {
+                    return;
+                }
+                if (movies.isEmpty()) {
+                    toast("No suggestions 4 " + source.getTitle() + " yet");
+                    return;
+                }
+                String[] titles = new String[movies.size()];
+                for (int i = 0; i < titles.length; i++) {
+                    titles[i] = movies.get(i).getTitle();
+                }
+                new AlertDialog.Builder(WatchlistActivity.this)
+                        .setTitle("Because you liked " + source.getTitle())
+                        .setItems(titles, (dialog, which) -> WatchlistBulk.add(Collections.singletonList(movies.get(which)))
+                                .addOnSuccessListener(aVoid -> toast("Added " + titles[which] + " to Watchlist"))
+                                .addOnFailureListener(e -> toast("Error adding movie: " + e.getMessage())))
+                        .show();
+            }
 
-                        adapter.notifyDataSetChanged();
-                    }
-                });
+            @Override
+            public void onError(Exception e) {
+                toast("Error loading suggestions: " + e.getMessage());
+            }
+        });
     }
 
+    private void showSummary(WatchlistSummary summary) {
+        if (getSupportActionBar() == null) {
+            return;
+        }
+        String text = summary.count + " movies · " + summary.unrated() + " unrated";
+        if (summary.rated > 0) {
+            text += String.format(Locale.US, " · avg %.1f", summary.averageRating());
+        }
+        getSupportActionBar().setSubtitle(text);
+    }
+
+    private void toast(String message) {
+        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_watchlist, menu);
+        menu.findItem(SORT_ITEMS[query.sort.ordinal()]).setChecked(true);
+        menu.findItem(FILTER_ITEMS[query.filter.ordinal()]).setChecked(true);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.actionSuggest) {
+            suggest();
+            return true;
+        }
+        if (item.getItemId() == R.id.actionImport) {
+            importPicker.launch(new String[]{"text/*", "application/*"});
+            return true;
+        }
+        if (item.getItemId() == R.id.actionExport) {
+            exportPicker.launch("watchlist.ndjson"); // name it .csv 4 CSV
+            return true;
+        }
+
+        int sort = indexOf(SORT_ITEMS, item.getItemId());
+        if (sort >= 0) {
+            item.setChecked(true);
+            changeQuery(query.withSort(WatchlistQuery.Sort.values()[sort]));
+            return true;
+        }
+        int filter = indexOf(FILTER_ITEMS, item.getItemId());
+        if (filter >= 0) {
+            item.setChecked(true);
+            changeQuery(query.withFilter(WatchlistQuery.Filter.values()[filter]));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /*
+     new sort / filter: firestore sends the first page of it,
+     which replaces the rows on screen with one diff.
+    */
+    private void changeQuery(WatchlistQuery next) {
+        if (next.equals(query)) {
+            return;
+        }
+        query = next;
+        getSharedPreferences(PREFS, MODE_PRIVATE).edit()
+                .putString("sort", query.sort.name())
+                .putString("filter", query.filter.name())
+                .apply();
+        pager.start(query.on(watchlist()));
+    }
+
+    private WatchlistQuery readQuery() {
+        SharedPreferences prefs = getSharedPreferences(PREFS, MODE_PRIVATE);
+        try {
+            return new WatchlistQuery(
+                    WatchlistQuery.Sort.valueOf(prefs.getString("sort", WatchlistQuery.DEFAULT.sort.name())),
+                    WatchlistQuery.Filter.valueOf(prefs.getString("filter", WatchlistQuery.DEFAULT.filter.name())));
+        } catch (IllegalArgumentException e) {
+            return WatchlistQuery.DEFAULT; // saved by an older version
+        }
+    }
+
+    private static int indexOf(int[] items, int itemId) {
+        for (int i = 0; i < items.length; i++) {
+            if (items[i] == itemId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     Import from a file the user picked (NDJSON or CSV, by file name).
+     streamed in the background, rows show up through the snapshot listener.
+    */
+    private void importFrom(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        Context app = getApplicationContext();
+        WatchlistFormat format = WatchlistFormat.fromFileName(displayName(uri));
+        toast("Importing...");
+
+        transferExecutor.execute(() -> {
+            String message;
+            try (InputStream in = app.getContentResolver().openInputStream(uri)) {
+                WatchlistTransfer.Result result = newTransfer(app)
+                        .importFrom(new InputStreamReader(in, StandardCharsets.UTF_8), format, null);
+                message = "Imported " + result.imported + " movies"
+                        + (result.skipped > 0 ? ", " + result.skipped + " not found" : "")
+                        + (result.failed > 0 ? ", " + result.failed + " failed, import the file again" : "");
+            } catch (Exception e) {
+                message = "Import failed: " + e.getMessage();
+            }
+            String done = message;
+            runOnUiThread(() -> Toast.makeText(app, done, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    private void exportTo(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        Context app = getApplicationContext();
+        WatchlistFormat format = WatchlistFormat.fromFileName(displayName(uri));
+
+        transferExecutor.execute(() -> {
+            String message;
+            try (OutputStream out = app.getContentResolver().openOutputStream(uri)) {
+                int rows = newTransfer(app).exportTo(new OutputStreamWriter(out, StandardCharsets.UTF_8), format);
+                message = "Exported " + rows + " movies";
+            } catch (Exception e) {
+                message = "Export failed: " + e.getMessage();
+            }
+            String done = message;
+            runOnUiThread(() -> Toast.makeText(app, done, Toast.LENGTH_LONG).show());
+        });
+    }
+
+    private WatchlistTransfer newTransfer(Context app) {
+        return new WatchlistTransfer(
+                new FirestoreWatchlistStore(db, userId),
+                new TmdbLookup(TmdbClient.get(app)));
+    }
+
+    private String displayName(Uri uri) {
+        try (Cursor cursor = getContentResolver().query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getString(0);
+            }
+        }
+        return uri.getLastPathSegment();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        WriteBehindQueue.get().flush();
+        Metrics.dump(this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        pager.stop();
+        summaryRegistration.remove();
+        snapshotExecutor.shutdown();
+        transferExecutor.shutdown(); // a running import / export still finishes
+    }
 
     @Override
     public boolean onSupportNavigateUp() {
@@ -11,28 +11,36 @@ import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FieldValue;
 
 import java.util.List;
+import java.util.Map;
 
 /*
 UI 4 watchlst activity
 */
-public class WatchlistAdapter extends RecyclerView.Adapter<WatchlistAdapter.ViewHolder> {
+public class WatchlistAdapter extends RecyclerView.Adapter<WatchlistAdapter.ViewHolder>
+        implements PosterLoader.ItemSource {
 
     private final Context context;
-    private final List<Movie> movies;
-    private final FirebaseFirestore db;
+    private final DetailsEnricher details;
 
-    public WatchlistAdapter(Context context, List<Movie> movies) {
+    /*
+     rows are kept up to date with snapshot deltas, see WatchlistIndex
+    */
+    private final WatchlistIndex index = new WatchlistIndex();
+
+    // multi-select, null when the list has none
+    private MultiSelection selection;
+
+    public WatchlistAdapter(Context context) {
         this.context = context;
-        this.movies = movies;
-        this.db = FirebaseFirestore.getInstance();
+        this.details = DetailsEnricher.get(context);
+        setHasStableIds(true);
     }
 
 
@@ -44,24 +52,40 @@ public class WatchlistAdapter extends RecyclerView.Adapter<WatchlistAdapter.View
         return new ViewHolder(view);
     }
 
+    public void setSelection(MultiSelection selection) {
+        this.selection = selection;
+        selection.attach(this);
+    }
+
+    /*
+     only the picked state changed, no need 4 a full bind
+    */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (selection != null && !payloads.isEmpty() && payloads.stream().allMatch(p -> p == MultiSelection.PAYLOAD_SELECTION)) {
+            holder.itemView.setActivated(selection.isSelected(index.get(position)));
+            return;
+        }
+        onBindViewHolder(holder, position);
+    }
+
     /*
     gets data from a movie object and puts it into ui
     */
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Movie m = movies.get(position);
+        long bindStart = Metrics.begin("bind.watchlist");
+        Movie m = index.get(position);
 
 
         holder.title.setText(m.getTitle());
+        details.bind(holder.details, m); // year, runtime, genres
 
 
         holder.ratingBar.setRating(m.getRating());
 
 
-        Glide.with(context)
-                .load(m.getPosterUrl())
-                .placeholder(R.drawable.placeholder)
-                .into(holder.poster);
+        PosterLoader.load(holder.poster, m.getPosterUrl());
 
         /*
          update firestore rating
@@ -74,60 +98,82 @@ public class WatchlistAdapter extends RecyclerView.Adapter<WatchlistAdapter.View
         });
 
         // Remove a movie from the user's watchlist
-        holder.removeButton.setOnClickListener(v -> removeFromWatchlist(m, position));
+        holder.removeButton.setOnClickListener(v -> removeFromWatchlist(m));
+
+        if (selection != null) {
+            selection.bind(holder, m);
+        }
+        Metrics.end(Metrics.BIND_WATCHLIST, bindStart);
     }
 
     /*
-     Updates personal rating
+     Updates personal rating.
+     queued, so sliding over the stars only sends the last value
     */
     private void updateRatingInFirestore(Movie movie) {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        String userId = AppStartup.auth().getCurrentUser().getUid();
 
-        DocumentReference ref = db.collection("users")
+        DocumentReference ref = AppStartup.firestore().collection("users")
                 .document(userId)
                 .collection("watchlist")
                 .document(movie.getTmdbId());
 
-        ref.update("rating", movie.getRating())
-                .addOnSuccessListener(aVoid ->
-                        Toast.makeText(context, "Rating updated!", Toast.LENGTH_SHORT).show())
-                .addOnFailureListener(e ->
-                        Toast.makeText(context, "Failed to update rating: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        // the whole row, if it was removed on another device meanwhile it comes back whole
+        Map<String, Object> fields = movie.toMap();
+        fields.put("updatedAt", FieldValue.serverTimestamp());
+        WriteBehindQueue.get().update(ref, fields);
     }
 
     /*
-     Removes a movie from the users firestore
+     Removes a movie from the users firestore (queued).
+     the row goes away when the snapshot listener sends the REMOVED change
     */
-    private void removeFromWatchlist(Movie movie, int position) {
-        String userId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+    private void removeFromWatchlist(Movie movie) {
+        String userId = AppStartup.auth().getCurrentUser().getUid();
 
-        DocumentReference ref = db.collection("users")
+        DocumentReference ref = AppStartup.firestore().collection("users")
                 .document(userId)
                 .collection("watchlist")
                 .document(movie.getTmdbId());
 
-        ref.delete()
-                .addOnSuccessListener(aVoid -> {
-                    movies.remove(position);
-                    notifyItemRemoved(position);
-                    Toast.makeText(context, "Removed from Watchlist", Toast.LENGTH_SHORT).show();
-                })
-                .addOnFailureListener(e ->
-                        Toast.makeText(context, "Failed to remove: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+        WriteBehindQueue.get().delete(ref);
+        Toast.makeText(context, "Removed from Watchlist", Toast.LENGTH_SHORT).show();
     }
 
     /*
-     Returns the number of movies in the watchlist.
+     Replaces all rows (saved rows -> first snapshot), main thread only.
     */
+    public void replaceAll(List<Movie> movies, DiffUtil.DiffResult diff) {
+        index.replaceAll(movies, diff, this);
+    }
+
+    /*
+     Applies one snapshot worth of changes, main thread only.
+    */
+    public void applyChanges(List<WatchlistIndex.Change> changes) {
+        index.apply(changes, this);
+    }
+
     @Override
     public int getItemCount() {
-        return movies.size();
+        return index.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return MovieDiffCallback.stableId(index.get(position));
+    }
+
+    @Override
+    public Movie getMovie(int position) {
+        return index.get(position);
     }
 
 
     static class ViewHolder extends RecyclerView.ViewHolder {
         ImageView poster;
         TextView title;
+        TextView details;
         RatingBar ratingBar;
         Button removeButton;
 
@@ -135,6 +181,7 @@ public class WatchlistAdapter extends RecyclerView.Adapter<WatchlistAdapter.View
             super(itemView);
             poster = itemView.findViewById(R.id.posterImage);
             title = itemView.findViewById(R.id.movieTitle);
+            details = itemView.findViewById(R.id.movieDetails);
             ratingBar = itemView.findViewById(R.id.ratingBar);
             removeButton = itemView.findViewById(R.id.removeButton);
         }
@@ -0,0 +1,69 @@
+package com.example.moviewatchlist;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ Add / remove / re-rate many watchlist movies at once.
+ - the writes go through the WriteBehindQueue and are sent right away,
+   so they are merged with anything still queued 4 the same movies and
+   sent as WriteBatches of up to 500 writes (a few hundred titles is
+   one or two round trips)
+ - firestore applies them to its local cache at once, the watchlist
+   listener shows the change before the server answers
+ - the returned task is the final outcome: it completes when the server
+   has them (only once back online) and fails if a batch was rejected.
+   firestore has then undone that batch locally, the listener puts the
+   rows back, nothing is retried
+ Main thread only.
+*/
+public final class WatchlistBulk {
+
+    private WatchlistBulk() { }
+
+    public static Task<Void> add(List<Movie> movies) {
+        WriteBehindQueue queue = WriteBehindQueue.get();
+        for (Movie m : movies) {
+            Map<String, Object> data = m.toMap();
+            data.put("updatedAt", FieldValue.serverTimestamp());
+            data.put("addedAt", FieldValue.serverTimestamp());
+            queue.set(ref(m), data);
+        }
+        return queue.send();
+    }
+
+    public static Task<Void> remove(List<Movie> movies) {
+        WriteBehindQueue queue = WriteBehindQueue.get();
+        for (Movie m : movies) {
+            queue.delete(ref(m));
+        }
+        return queue.send();
+    }
+
+    /*
+     Sets the same personal rating on all of them.
+    */
+    public static Task<Void> rate(List<Movie> movies, int stars) {
+        WriteBehindQueue queue = WriteBehindQueue.get();
+        for (Movie m : movies) {
+            Map<String, Object> fields = m.toMap(); // a complete row if it was removed meanwhile
+            fields.put("rating", stars);
+            fields.put("updatedAt", FieldValue.serverTimestamp());
+            queue.update(ref(m), fields);
+        }
+        return queue.send();
+    }
+
+    private static DocumentReference ref(Movie movie) {
+        String userId = AppStartup.auth().getCurrentUser().getUid();
+
+        return AppStartup.firestore().collection("users")
+                .document(userId)
+                .collection("watchlist")
+                .document(movie.getTmdbId());
+    }
+}
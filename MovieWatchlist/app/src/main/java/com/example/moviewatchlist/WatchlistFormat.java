@@ -0,0 +1,366 @@
+package com.example.moviewatchlist;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ File formats 4 watchlist import / export, one movie per row.
+ - NDJSON: one json object per line
+     {"tmdbId":"550","title":"Fight Club","rating":4,"posterUrl":"..."}
+ - CSV: header line, then rows (quotes like RFC 4180)
+     tmdbId,title,rating,posterUrl
+ both are read and written one row at a time, never the whole file.
+ on import only title or tmdbId is needed, rows from other services
+ (e.g. "Name" / "Your Rating" columns) are understood too.
+ the rating scale is per file, from the column name: "Your Rating" is
+ IMDb's 1..10 and is halved, "rating" / "stars" (ours, letterboxd) are 0..5.
+ plain java, no android.
+*/
+public enum WatchlistFormat {
+
+    NDJSON,
+    CSV;
+
+    /*
+     Reads rows until null, the row is a Movie with what the file had.
+    */
+    public interface RowReader extends Closeable {
+        Movie next() throws IOException;
+    }
+
+    public interface RowWriter extends Closeable {
+        void write(Movie movie) throws IOException;
+    }
+
+    static final String[] COLUMNS = {"tmdbId", "title", "rating", "posterUrl"};
+
+    public RowReader reader(Reader source) {
+        BufferedReader in = source instanceof BufferedReader
+                ? (BufferedReader) source
+                : new BufferedReader(source);
+        return this == NDJSON ? new NdjsonReader(in) : new CsvReader(in);
+    }
+
+    public RowWriter writer(Writer sink) {
+        return this == NDJSON ? new NdjsonWriter(sink) : new CsvWriter(sink);
+    }
+
+    /*
+     .csv is CSV, everything else (.ndjson, .jsonl, .json) is NDJSON.
+    */
+    public static WatchlistFormat fromFileName(String name) {
+        return name != null && name.toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+    }
+
+    public String mimeType() {
+        return this == CSV ? "text/csv" : "application/x-ndjson";
+    }
+
+    /*
+     A rating from the file -> 0..5 stars, halved 4 files on a 10 point scale.
+    */
+    static int toStars(double rating, boolean tenPoint) {
+        if (tenPoint) {
+            rating = rating / 2;
+        }
+        return (int) Math.max(0, Math.min(5, Math.round(rating)));
+    }
+
+    /* NDJSON */
+
+    private static final class NdjsonReader implements RowReader {
+        private final BufferedReader in;
+
+        NdjsonReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Movie next() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    return parse(line);
+                }
+            }
+            return null;
+        }
+
+        private static Movie parse(String line) throws IOException {
+            Movie movie = new Movie();
+
+            try (JsonReader reader = new JsonReader(new StringReader(line))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                        continue;
+                    }
+                    switch (name) {
+                        case "tmdbId":
+                        case "id":
+                            movie.setTmdbId(reader.nextString());
+                            break;
+                        case "title":
+                            movie.setTitle(reader.nextString());
+                            break;
+                        case "rating":
+                            movie.setRating(toStars(reader.nextDouble(), false));
+                            break;
+                        case "posterUrl":
+                            movie.setPosterUrl(reader.nextString());
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+            } catch (IllegalStateException | NumberFormatException e) {
+                throw new IOException("Bad NDJSON row: " + e.getMessage(), e);
+            }
+            return movie;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class NdjsonWriter implements RowWriter {
+        private final Writer out;
+
+        NdjsonWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Movie movie) throws IOException {
+            // a JsonWriter per row, closing it would close out
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject();
+            json.name("tmdbId").value(movie.getTmdbId());
+            json.name("title").value(movie.getTitle());
+            json.name("rating").value(movie.getRating());
+            if (movie.getPosterUrl() != null) {
+                json.name("posterUrl").value(movie.getPosterUrl());
+            }
+            json.endObject();
+            json.flush();
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /* CSV */
+
+    private static final class CsvReader implements RowReader {
+        private final BufferedReader in;
+        private final StringBuilder field = new StringBuilder();
+
+        // column index -> what it is, from the header
+        private String[] columns;
+
+        // the rating column is IMDb's "Your Rating" (1..10)
+        private boolean tenPoint;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Movie next() throws IOException {
+            if (columns == null) {
+                String[] header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new String[header.length];
+                for (int i = 0; i < header.length; i++) {
+                    columns[i] = column(header[i]);
+                    if (RATING_10.equals(columns[i])) {
+                        columns[i] = "rating";
+                        tenPoint = true;
+                    }
+                }
+            }
+
+            String[] record;
+            do {
+                record = readRecord();
+                if (record == null) {
+                    return null;
+                }
+            } while (record.length == 1 && record[0].isEmpty()); // blank line
+
+            Movie movie = new Movie();
+            for (int i = 0; i < record.length && i < columns.length; i++) {
+                String value = record[i].trim();
+                if (columns[i] == null || value.isEmpty()) {
+                    continue;
+                }
+                switch (columns[i]) {
+                    case "tmdbId":
+                        movie.setTmdbId(value);
+                        break;
+                    case "title":
+                        movie.setTitle(value);
+                        break;
+                    case "rating":
+                        try {
+                            movie.setRating(toStars(Double.parseDouble(value), tenPoint));
+                        } catch (NumberFormatException ignored) {
+                            // not rated
+                        }
+                        break;
+                    case "posterUrl":
+                        movie.setPosterUrl(value);
+                        break;
+                }
+            }
+            return movie;
+        }
+
+        // a rating column on the 10 point scale
+        private static final String RATING_10 = "rating10";
+
+        /*
+         Header name -> our column, null if we do not use it.
+        */
+        private static String column(String header) {
+            // excel puts a byte order mark before the first header
+            switch (header.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT)) {
+                case "tmdbid":
+                case "tmdb_id":
+                case "id":
+                    return "tmdbId";
+                case "title":
+                case "name":
+                    return "title";
+                case "rating":
+                case "stars":
+                    return "rating";
+                case "your rating":
+                    return RATING_10;
+                case "posterurl":
+                case "poster_url":
+                    return "posterUrl";
+                default:
+                    return null;
+            }
+        }
+
+        /*
+         One record, quoted fields may hold commas, quotes ("") and newlines.
+         null at the end of the file.
+        */
+        private String[] readRecord() throws IOException {
+            int c = in.read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> fields = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int n = in.read();
+                        if (n == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            in.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+
+            fields.add(field.toString());
+            return fields.toArray(new String[0]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class CsvWriter implements RowWriter {
+        private final Writer out;
+        private boolean headerWritten;
+
+        CsvWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Movie movie) throws IOException {
+            if (!headerWritten) {
+                out.write(String.join(",", COLUMNS));
+                out.write('\n');
+                headerWritten = true;
+            }
+            out.write(quote(movie.getTmdbId()));
+            out.write(',');
+            out.write(quote(movie.getTitle()));
+            out.write(',');
+            out.write(String.valueOf(movie.getRating()));
+            out.write(',');
+            out.write(quote(movie.getPosterUrl()));
+            out.write('\n');
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!headerWritten) {
+                out.write(String.join(",", COLUMNS)); // empty list, header only
+                out.write('\n');
+            }
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.moviewatchlist;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ WatchlistIndex is the watchlist rows plus an index by tmdbId.
+ it is updated with the DocumentChange deltas of each snapshot,
+ so the work per snapshot is the number of changed documents,
+ not the size of the watchlist.
+ only used on the main thread.
+*/
+public class WatchlistIndex {
+
+    /*
+     One document change, already turned into a Movie.
+     built on the background thread, applied on the main thread.
+    */
+    public static class Change {
+        final DocumentChange.Type type;
+        final String tmdbId;
+        final int oldIndex;
+        final int newIndex;
+        final Movie movie;
+
+        Change(DocumentChange.Type type, String tmdbId, int oldIndex, int newIndex, Movie movie) {
+            this.type = type;
+            this.tmdbId = tmdbId;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+            this.movie = movie;
+        }
+
+        /*
+         A row that did not come from firestore (saved rows).
+        */
+        static Change added(int index, Movie movie) {
+            return new Change(DocumentChange.Type.ADDED, movie.getTmdbId(), -1, index, movie);
+        }
+
+        static Change modified(int index, Movie movie) {
+            return new Change(DocumentChange.Type.MODIFIED, movie.getTmdbId(), index, index, movie);
+        }
+
+        static Change removed(int index, String tmdbId) {
+            return new Change(DocumentChange.Type.REMOVED, tmdbId, index, -1, null);
+        }
+
+        /*
+         toObject only runs 4 added and modified documents.
+        */
+        public static Change from(DocumentChange dc) {
+            return from(dc, 0);
+        }
+
+        /*
+         A change of a query that starts at row offset (a later page).
+        */
+        public static Change from(DocumentChange dc, int offset) {
+            Movie movie = dc.getType() == DocumentChange.Type.REMOVED
+                    ? null
+                    : dc.getDocument().toObject(Movie.class);
+            return new Change(dc.getType(), dc.getDocument().getId(),
+                    dc.getOldIndex() < 0 ? -1 : dc.getOldIndex() + offset,
+                    dc.getNewIndex() < 0 ? -1 : dc.getNewIndex() + offset,
+                    movie);
+        }
+    }
+
+    private static final MovieDiffCallback DIFF = new MovieDiffCallback();
+
+    private final List<Movie> rows = new ArrayList<>();
+    private final Map<String, Movie> byId = new HashMap<>();
+
+    public int size() {
+        return rows.size();
+    }
+
+    public Movie get(int position) {
+        return rows.get(position);
+    }
+
+    public Movie find(String tmdbId) {
+        return byId.get(tmdbId);
+    }
+
+    /*
+     Applies the changes in order (firestore indexes expect that)
+     and notifies only the positions that changed.
+    */
+    public void apply(List<Change> changes, RecyclerView.Adapter<?> adapter) {
+        for (Change c : changes) {
+            switch (c.type) {
+                case ADDED:
+                    rows.add(c.newIndex, c.movie);
+                    byId.put(c.movie.getTmdbId(), c.movie);
+                    adapter.notifyItemInserted(c.newIndex);
+                    break;
+
+                case MODIFIED:
+                    Movie old = rows.get(c.oldIndex);
+                    if (c.oldIndex != c.newIndex) {
+                        rows.remove(c.oldIndex);
+                        rows.add(c.newIndex, c.movie);
+                        adapter.notifyItemMoved(c.oldIndex, c.newIndex);
+                    } else {
+                        rows.set(c.newIndex, c.movie);
+                    }
+                    byId.put(c.movie.getTmdbId(), c.movie);
+
+                    // a rating we already show locally does not need a rebind
+                    if (!DIFF.areContentsTheSame(old, c.movie)) {
+                        adapter.notifyItemChanged(c.newIndex);
+                    }
+                    break;
+
+                case REMOVED:
+                    Movie removed = rows.remove(c.oldIndex);
+                    byId.remove(removed.getTmdbId());
+                    adapter.notifyItemRemoved(c.oldIndex);
+                    break;
+            }
+        }
+    }
+
+    /*
+     Replaces all rows, e.g. the saved rows with the first snapshot.
+     the diff is computed off the main thread with diff().
+    */
+    public void replaceAll(List<Movie> movies, DiffUtil.DiffResult diff, RecyclerView.Adapter<?> adapter) {
+        rows.clear();
+        rows.addAll(movies);
+        byId.clear();
+        for (Movie m : movies) {
+            byId.put(m.getTmdbId(), m);
+        }
+        diff.dispatchUpdatesTo(adapter);
+    }
+
+    /*
+     Diff between two full lists, safe on any thread.
+    */
+    public static DiffUtil.DiffResult diff(List<Movie> oldRows, List<Movie> newRows) {
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldRows.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newRows.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPos, int newPos) {
+                return DIFF.areItemsTheSame(oldRows.get(oldPos), newRows.get(newPos));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPos, int newPos) {
+                return DIFF.areContentsTheSame(oldRows.get(oldPos), newRows.get(newPos));
+            }
+        });
+    }
+}
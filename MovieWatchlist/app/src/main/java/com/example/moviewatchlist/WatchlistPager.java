@@ -0,0 +1,274 @@
+package com.example.moviewatchlist;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/*
+ Live watchlist query, loaded PAGE_SIZE documents at a time.
+ - a page is a snapshot listener on query.startAfter(cursor).limit(PAGE_SIZE),
+   the cursor is the last document of the page before
+ - when the next page is loaded the last page is closed: its listener is
+   replaced by one ending at its last document (endAt), so a page never
+   pulls in rows of the next one when a row leaves it
+ - every page only sends its changed documents, their indexes are moved
+   by the rows of the pages before, so the listener gets changes 4 the
+   whole list (WatchlistIndex.apply)
+ opening the screen downloads one page, not the whole watchlist.
+ everything runs on the executor (one thread), listener calls too.
+*/
+public class WatchlistPager {
+
+    static final int PAGE_SIZE = 30;
+
+    public interface Listener {
+        /*
+         First page of a new query, it replaces oldRows
+         (the saved rows or the rows of the query before).
+        */
+        void onReset(List<Movie> oldRows, List<Movie> newRows, long received);
+
+        /*
+         Changes in any page, indexes are positions in the whole list.
+        */
+        void onChanges(List<WatchlistIndex.Change> changes, long received);
+
+        void onError(Exception e);
+    }
+
+    private static final class Page {
+        // start cursor, null 4 the first page
+        final DocumentSnapshot after;
+        // last document, the next page starts after it
+        DocumentSnapshot last;
+        int size;
+        // ends at last (endAt) instead of the limit
+        boolean closed;
+        // the closed listener has not sent its first snapshot yet
+        boolean reopened;
+        ListenerRegistration registration;
+        // snapshots of older listeners of this page are dropped
+        int version;
+
+        Page(DocumentSnapshot after) {
+            this.after = after;
+        }
+    }
+
+    private final Executor executor;
+    private final Listener listener;
+
+    // executor only
+    private final List<Page> pages = new ArrayList<>();
+    private final List<Movie> rows = new ArrayList<>();
+    private Query query;
+    private boolean loaded;
+
+    public WatchlistPager(Executor executor, Listener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /*
+     Rows shown before the first page arrives (saved rows), executor only.
+    */
+    void seed(List<Movie> saved) {
+        rows.clear();
+        rows.addAll(saved);
+    }
+
+    /*
+     Listens to a new query from its first page, the old pages are dropped.
+    */
+    public void start(Query query) {
+        executor.execute(() -> {
+            removeListeners();
+            pages.clear();
+            this.query = query;
+            loaded = false;
+
+            Page first = new Page(null);
+            pages.add(first);
+            listen(first, query.limit(PAGE_SIZE));
+        });
+    }
+
+    /*
+     Loads the page after the last one, if there can be one
+     (the last page is full) and it is not loading already.
+    */
+    public void loadMore() {
+        executor.execute(() -> {
+            if (!loaded || pages.isEmpty()) {
+                return;
+            }
+            Page last = pages.get(pages.size() - 1);
+            if (last.size < PAGE_SIZE || last.last == null) {
+                return;
+            }
+
+            // the last page keeps its rows but stops following the limit
+            last.registration.remove();
+            last.closed = true;
+            last.reopened = true;
+            Query bounded = last.after == null ? query : query.startAfter(last.after);
+            listen(last, bounded.endAt(last.last));
+
+            Page next = new Page(last.last);
+            pages.add(next);
+            listen(next, query.startAfter(last.last).limit(PAGE_SIZE));
+        });
+    }
+
+    public void stop() {
+        executor.execute(() -> {
+            removeListeners();
+            pages.clear();
+            query = null;
+        });
+    }
+
+    private void removeListeners() {
+        for (Page page : pages) {
+            if (page.registration != null) {
+                page.registration.remove();
+            }
+        }
+    }
+
+    private void listen(Page page, Query pageQuery) {
+        int version = ++page.version;
+        page.registration = pageQuery.addSnapshotListener(executor, (snapshots, e) -> {
+            long received = System.nanoTime();
+
+            if (page.version != version || !pages.contains(page)) {
+                return;
+            }
+            if (e != null) {
+                listener.onError(e);
+                return;
+            }
+            if (snapshots == null) {
+                return;
+            }
+            onSnapshot(page, snapshots, received);
+        });
+    }
+
+    private void onSnapshot(Page page, QuerySnapshot snapshots, long received) {
+        if (!snapshots.isEmpty() && !page.closed) {
+            page.last = snapshots.getDocuments().get(snapshots.size() - 1);
+        }
+
+        // first page of the query: everything shown before is replaced
+        if (!loaded) {
+            List<Movie> oldRows = new ArrayList<>(rows);
+            List<Movie> newRows = toMovies(snapshots);
+            rows.clear();
+            rows.addAll(newRows);
+            page.size = newRows.size();
+            loaded = true;
+            listener.onReset(oldRows, newRows, received);
+            return;
+        }
+
+        int offset = offsetOf(page);
+        List<WatchlistIndex.Change> changes;
+        if (page.reopened) {
+            page.reopened = false;
+            changes = replacePage(page, offset, toMovies(snapshots));
+        } else {
+            changes = applyChanges(page, offset, snapshots.getDocumentChanges());
+        }
+
+        if (!changes.isEmpty()) {
+            listener.onChanges(changes, received);
+        }
+    }
+
+    private List<WatchlistIndex.Change> applyChanges(Page page, int offset, List<DocumentChange> documentChanges) {
+        List<WatchlistIndex.Change> changes = new ArrayList<>(documentChanges.size());
+
+        for (DocumentChange dc : documentChanges) {
+            WatchlistIndex.Change c = WatchlistIndex.Change.from(dc, offset);
+            switch (c.type) {
+                case ADDED:
+                    rows.add(c.newIndex, c.movie);
+                    page.size++;
+                    break;
+                case MODIFIED:
+                    rows.remove(c.oldIndex);
+                    rows.add(c.newIndex, c.movie);
+                    break;
+                case REMOVED:
+                    rows.remove(c.oldIndex);
+                    page.size--;
+                    break;
+            }
+            changes.add(c);
+        }
+        return changes;
+    }
+
+    /*
+     First snapshot of a closed page. it is almost always the same rows,
+     then only their contents are updated (no moves, nothing rebinds
+     that did not change), else the page's rows are swapped.
+    */
+    private List<WatchlistIndex.Change> replacePage(Page page, int offset, List<Movie> movies) {
+        List<Movie> old = rows.subList(offset, offset + page.size);
+        List<WatchlistIndex.Change> changes = new ArrayList<>();
+
+        boolean sameRows = old.size() == movies.size();
+        for (int i = 0; sameRows && i < old.size(); i++) {
+            sameRows = old.get(i).getTmdbId().equals(movies.get(i).getTmdbId());
+        }
+
+        if (sameRows) {
+            for (int i = 0; i < movies.size(); i++) {
+                old.set(i, movies.get(i));
+                changes.add(WatchlistIndex.Change.modified(offset + i, movies.get(i)));
+            }
+            return changes;
+        }
+
+        for (int i = old.size() - 1; i >= 0; i--) {
+            changes.add(WatchlistIndex.Change.removed(offset + i, old.get(i).getTmdbId()));
+        }
+        old.clear();
+        for (int i = 0; i < movies.size(); i++) {
+            rows.add(offset + i, movies.get(i));
+            changes.add(WatchlistIndex.Change.added(offset + i, movies.get(i)));
+        }
+        page.size = movies.size();
+        return changes;
+    }
+
+    private int offsetOf(Page page) {
+        int offset = 0;
+        for (Page p : pages) {
+            if (p == page) {
+                break;
+            }
+            offset += p.size;
+        }
+        return offset;
+    }
+
+    private static List<Movie> toMovies(QuerySnapshot snapshots) {
+        List<Movie> movies = new ArrayList<>(snapshots.size());
+        for (DocumentSnapshot doc : snapshots.getDocuments()) {
+            Movie movie = doc.toObject(Movie.class);
+            if (movie != null) {
+                movies.add(movie);
+            }
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.moviewatchlist;
+
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.Query;
+
+/*
+ Sort + filter of the watchlist screen, done by firestore (not on the phone),
+ so only the rows on screen are downloaded. see WatchlistPager 4 the paging.
+ every filter + sort pair has a composite index in firestore.indexes.json.
+ ADDED only shows docs with addedAt, every add sets it and the docs from
+ before it got one from the jobs (AddedAtJob).
+ no sort by the global average: the watchlist doc only has the
+ avgRating of when the movie was added, it would be out of date.
+*/
+public final class WatchlistQuery {
+
+    public enum Sort {
+        TITLE("title", Query.Direction.ASCENDING),
+        RATING("rating", Query.Direction.DESCENDING),
+        ADDED("addedAt", Query.Direction.DESCENDING);
+
+        final String field;
+        final Query.Direction direction;
+
+        Sort(String field, Query.Direction direction) {
+            this.field = field;
+            this.direction = direction;
+        }
+    }
+
+    public enum Filter {
+        ALL(0),
+        UNRATED(0),
+        RATED(1),
+        AT_LEAST_3(3),
+        AT_LEAST_4(4),
+        FIVE(5);
+
+        // lowest personal rating shown, 0 = no limit
+        final int minStars;
+
+        Filter(int minStars) {
+            this.minStars = minStars;
+        }
+    }
+
+    public static final WatchlistQuery DEFAULT = new WatchlistQuery(Sort.TITLE, Filter.ALL);
+
+    public final Sort sort;
+    public final Filter filter;
+
+    public WatchlistQuery(Sort sort, Filter filter) {
+        this.sort = sort;
+        this.filter = filter;
+    }
+
+    public WatchlistQuery withSort(Sort sort) {
+        return new WatchlistQuery(sort, filter);
+    }
+
+    public WatchlistQuery withFilter(Filter filter) {
+        return new WatchlistQuery(sort, filter);
+    }
+
+    /*
+     The query without limit / cursors.
+     firestore orders by document id last by itself, so cursors never tie.
+    */
+    public Query on(CollectionReference watchlist) {
+        Query query = watchlist;
+
+        if (filter == Filter.UNRATED) {
+            query = query.whereEqualTo("rating", 0);
+        } else if (filter.minStars > 0) {
+            query = query.whereGreaterThanOrEqualTo("rating", filter.minStars);
+        }
+
+        return query.orderBy(sort.field, sort.direction);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof WatchlistQuery)) {
+            return false;
+        }
+        WatchlistQuery other = (WatchlistQuery) o;
+        return sort == other.sort && filter == other.filter;
+    }
+
+    @Override
+    public int hashCode() {
+        return sort.hashCode() * 31 + filter.hashCode();
+    }
+}
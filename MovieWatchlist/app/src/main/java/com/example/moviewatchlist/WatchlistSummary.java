@@ -0,0 +1,307 @@
+package com.example.moviewatchlist;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Source;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Counts of a user's watchlist in one doc (users/{uid}/summary/watchlist),
+ so a header or badge is one read instead of the whole collection.
+ - count, rated, ratingSum and how many movies have 1..5 stars
+ - whoever writes watchlist docs (WriteBehindQueue, the import) adds the
+   difference here as FieldValue.increment in the same WriteBatch, so the
+   docs and the summary change together, offline too, and the listeners
+   see it at once. the befores come from the local cache (cached()), no
+   server round trip per doc
+ - a doc the cache does not have can't be counted, the summary is marked
+   dirty then. a cache that is behind (another device wrote meanwhile)
+   is not noticed, so the summary is also rebuilt once it is older than
+   REBUILD_MILLIS
+ - a doc that is dirty, too old or not complete yet (from before the
+   summary) is rebuilt with aggregate queries as soon as the server has it
+*/
+public class WatchlistSummary {
+
+    static final String SUMMARY = "summary";
+    static final String WATCHLIST = "watchlist";
+
+    static final String FIELD_COUNT = "count";
+    static final String FIELD_RATED = "rated";
+    static final String FIELD_RATING_SUM = "ratingSum";
+    static final String FIELD_STARS = "stars"; // map "1".."5" -> movies
+
+    // only set by rebuild(), increments alone could have started the doc mid-way
+    static final String FIELD_COMPLETE = "complete";
+
+    // set by writes that could not count a doc, cleared by rebuild()
+    static final String FIELD_DIRTY = "dirty";
+
+    // server time of the last rebuild()
+    static final String FIELD_REBUILT_AT = "rebuiltAt";
+
+    // server time of the last write that changed the watchlist (the jobs
+    // look 4 changed watchlists by it, see NeighborsJob)
+    static final String FIELD_UPDATED_AT = "updatedAt";
+
+    // a day, the longest a drift from a stale cache can stay
+    static final long REBUILD_MILLIS = 24 * 60 * 60 * 1000L;
+
+    static final int MAX_STARS = 5;
+
+    public interface Listener {
+        void onSummary(WatchlistSummary summary);
+    }
+
+    public long count;
+    public long rated;
+    public long ratingSum;
+
+    // histogram[stars], index 0 unused (unrated is count - rated)
+    public final long[] histogram = new long[MAX_STARS + 1];
+
+    public long unrated() {
+        return count - rated;
+    }
+
+    /*
+     Average personal rating over the rated movies, 0 if none.
+    */
+    public double averageRating() {
+        return rated > 0 ? (double) ratingSum / rated : 0;
+    }
+
+    /*
+     True 4 docs in a users/{uid}/watchlist collection.
+    */
+    static boolean covers(DocumentReference ref) {
+        return WATCHLIST.equals(ref.getParent().getId()) && ref.getParent().getParent() != null;
+    }
+
+    static DocumentReference ref(FirebaseFirestore db, String userId) {
+        return db.collection("users").document(userId).collection(SUMMARY).document(WATCHLIST);
+    }
+
+    // the summary of the watchlist a doc is in
+    static DocumentReference refFor(DocumentReference watchlistDoc) {
+        return watchlistDoc.getParent().getParent().collection(SUMMARY).document(WATCHLIST);
+    }
+
+    /*
+     Adds the change of one watchlist doc: before as read, after = its fields
+     once the write is done (null = not there). before may be null if it
+     could not be read, it is taken as not there.
+    */
+    void change(DocumentSnapshot before, Map<String, Object> after) {
+        if (before != null && before.exists()) {
+            Long stars = before.getLong("rating");
+            tally(-1, stars != null ? stars.intValue() : 0);
+        }
+        if (after != null) {
+            Object stars = after.get("rating");
+            tally(1, stars instanceof Number ? ((Number) stars).intValue() : 0);
+        }
+    }
+
+    private void tally(int sign, int stars) {
+        count += sign;
+        if (stars >= 1 && stars <= MAX_STARS) {
+            rated += sign;
+            ratingSum += (long) sign * stars;
+            histogram[stars] += sign;
+        }
+    }
+
+    boolean isEmpty() {
+        if (count != 0 || rated != 0 || ratingSum != 0) {
+            return false;
+        }
+        for (long n : histogram) {
+            if (n != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     This (a difference) as increments, 4 batch.set(..., SetOptions.merge()).
+    */
+    Map<String, Object> toIncrements() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_COUNT, FieldValue.increment(count));
+        fields.put(FIELD_RATED, FieldValue.increment(rated));
+        fields.put(FIELD_RATING_SUM, FieldValue.increment(ratingSum));
+
+        Map<String, Object> stars = new HashMap<>();
+        for (int s = 1; s <= MAX_STARS; s++) {
+            if (histogram[s] != 0) {
+                stars.put(String.valueOf(s), FieldValue.increment(histogram[s]));
+            }
+        }
+        if (!stars.isEmpty()) {
+            fields.put(FIELD_STARS, stars); // an empty map would replace the old one
+        }
+        fields.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_COUNT, count);
+        fields.put(FIELD_RATED, rated);
+        fields.put(FIELD_RATING_SUM, ratingSum);
+
+        Map<String, Object> stars = new HashMap<>();
+        for (int s = 1; s <= MAX_STARS; s++) {
+            stars.put(String.valueOf(s), histogram[s]);
+        }
+        fields.put(FIELD_STARS, stars);
+        fields.put(FIELD_COMPLETE, true);
+        fields.put(FIELD_REBUILT_AT, FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    static WatchlistSummary from(DocumentSnapshot doc) {
+        WatchlistSummary summary = new WatchlistSummary();
+        summary.count = orZero(doc.getLong(FIELD_COUNT));
+        summary.rated = orZero(doc.getLong(FIELD_RATED));
+        summary.ratingSum = orZero(doc.getLong(FIELD_RATING_SUM));
+        for (int s = 1; s <= MAX_STARS; s++) {
+            summary.histogram[s] = orZero(doc.getLong(FIELD_STARS + "." + s));
+        }
+        return summary;
+    }
+
+    private static long orZero(Long value) {
+        return value != null ? value : 0;
+    }
+
+    /*
+     The summary writes 4 these watchlist writes, one per user, 4 set(..., SetOptions.merge()).
+     befores.get(i) is refs.get(i) as read before, afters.get(i) its fields after.
+     dirty marks each of them 4 a rebuild, a before could not be read.
+    */
+    static Map<DocumentReference, Map<String, Object>> increments(List<DocumentReference> refs,
+            List<DocumentSnapshot> befores, List<Map<String, Object>> afters, boolean dirty) {
+        Map<String, WatchlistSummary> byPath = new HashMap<>();
+        Map<String, DocumentReference> summaryRefs = new HashMap<>();
+
+        for (int i = 0; i < refs.size(); i++) {
+            DocumentReference summaryRef = refFor(refs.get(i));
+            WatchlistSummary diff = byPath.get(summaryRef.getPath());
+            if (diff == null) {
+                diff = new WatchlistSummary();
+                byPath.put(summaryRef.getPath(), diff);
+                summaryRefs.put(summaryRef.getPath(), summaryRef);
+            }
+            diff.change(befores.get(i), afters.get(i));
+        }
+
+        Map<DocumentReference, Map<String, Object>> writes = new HashMap<>();
+        for (Map.Entry<String, WatchlistSummary> e : byPath.entrySet()) {
+            if (!dirty && e.getValue().isEmpty()) {
+                continue;
+            }
+            Map<String, Object> fields = e.getValue().toIncrements();
+            if (dirty) {
+                fields.put(FIELD_DIRTY, true);
+            }
+            writes.put(summaryRefs.get(e.getKey()), fields);
+        }
+        return writes;
+    }
+
+    /*
+     The docs as the local cache has them, in one pass and without the
+     server. null 4 a doc the cache does not have (it counts as not there,
+     the write has to be dirty). a doc the cache knows is missing is a
+     snapshot that does not exist. never fails.
+    */
+    static Task<List<DocumentSnapshot>> cached(List<DocumentReference> refs) {
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>(refs.size());
+        for (DocumentReference ref : refs) {
+            reads.add(ref.get(Source.CACHE));
+        }
+        return Tasks.whenAllComplete(reads).continueWith(done -> {
+            List<DocumentSnapshot> docs = new ArrayList<>(reads.size());
+            for (Task<DocumentSnapshot> read : reads) {
+                docs.add(read.isSuccessful() ? read.getResult() : null);
+            }
+            return docs;
+        });
+    }
+
+    /*
+     Follows the user's summary, main thread. a missing, incomplete, dirty
+     or old doc is rebuilt once the server has it, a complete one is still
+     shown in the meantime (close, only the uncounted changes are off).
+    */
+    public static ListenerRegistration listen(FirebaseFirestore db, String userId, Listener listener) {
+        boolean[] rebuilding = {false};
+        return ref(db, userId).addSnapshotListener((doc, e) -> {
+            if (e != null || doc == null) {
+                return;
+            }
+            boolean complete = Boolean.TRUE.equals(doc.getBoolean(FIELD_COMPLETE));
+            boolean dirty = Boolean.TRUE.equals(doc.getBoolean(FIELD_DIRTY));
+            // estimate: the rebuild's own write is pending, not old
+            Timestamp rebuiltAt = doc.getTimestamp(FIELD_REBUILT_AT,
+                    DocumentSnapshot.ServerTimestampBehavior.ESTIMATE);
+            boolean old = rebuiltAt == null
+                    || System.currentTimeMillis() - rebuiltAt.toDate().getTime() > REBUILD_MILLIS;
+            if ((!complete || dirty || old) && !rebuilding[0] && !doc.getMetadata().isFromCache()) {
+                rebuilding[0] = true;
+                // the listener gets the new doc, a write that marks it dirty again starts another one
+                rebuild(db, userId).addOnCompleteListener(t -> rebuilding[0] = false);
+            }
+            if (complete) {
+                listener.onSummary(from(doc));
+            }
+        });
+    }
+
+    /*
+     Counts the watchlist again with aggregate queries (about one read per
+     1000 movies, no docs are downloaded) and overwrites the summary.
+     4 users from before the summary, or if it is ever off.
+     writes made while it runs can be counted twice or not at all.
+    */
+    public static Task<WatchlistSummary> rebuild(FirebaseFirestore db, String userId) {
+        CollectionReference watchlist = db.collection("users").document(userId).collection(WATCHLIST);
+
+        List<Task<AggregateQuerySnapshot>> counts = new ArrayList<>();
+        counts.add(watchlist.aggregate(AggregateField.count(), AggregateField.sum("rating"))
+                .get(AggregateSource.SERVER));
+        for (int s = 1; s <= MAX_STARS; s++) {
+            counts.add(watchlist.whereEqualTo("rating", s).count().get(AggregateSource.SERVER));
+        }
+
+        return Tasks.<AggregateQuerySnapshot>whenAllSuccess(counts).onSuccessTask(results -> {
+            WatchlistSummary summary = new WatchlistSummary();
+            AggregateQuerySnapshot all = results.get(0);
+            summary.count = all.getCount();
+            Long sum = all.getLong(AggregateField.sum("rating"));
+            summary.ratingSum = orZero(sum);
+            for (int s = 1; s <= MAX_STARS; s++) {
+                summary.histogram[s] = results.get(s).getCount();
+                summary.rated += summary.histogram[s];
+            }
+            return ref(db, userId).set(summary.toMap()).onSuccessTask(aVoid -> Tasks.forResult(summary));
+        });
+    }
+}
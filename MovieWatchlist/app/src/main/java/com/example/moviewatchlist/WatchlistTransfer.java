@@ -0,0 +1,201 @@
+package com.example.moviewatchlist;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Streaming import / export of a whole watchlist.
+ - export reads the watchlist one page at a time and writes each row
+   straight to the file
+ - import reads the file row by row, finds rows without an id on TMDB
+   (TmdbLookup) and writes them in batches of BATCH_SIZE,
+   the next rows are only read after the batch is stored
+ - a row TMDB could not be asked about (429, 5xx, no network) is skipped
+   and counted as failed, the import goes on. importing the same file
+   again is safe, so that is how the failed rows get in
+ so memory stays at one page / one batch, whatever the file size.
+ blocking, run it on a background thread.
+ the Store is firestore in the app (FirestoreWatchlistStore), a fake in tests.
+*/
+public class WatchlistTransfer {
+
+    // firestore WriteBatch limit, less the WatchlistSummary write
+    static final int BATCH_SIZE = 499;
+
+    /*
+     Where the watchlist lives.
+    */
+    public interface Store {
+        /*
+         Up to limit rows ordered by tmdbId, after afterId (null = from the start).
+        */
+        List<Movie> readPage(String afterId, int limit) throws IOException;
+
+        /*
+         Stores all rows in one go (at most BATCH_SIZE). a row already in the
+         watchlist keeps its date added, and its rating if the new row has none (0).
+        */
+        void writeBatch(List<Movie> movies) throws IOException;
+    }
+
+    public interface Progress {
+        void onProgress(int rowsRead, int imported, int skipped, int failed);
+    }
+
+    /*
+     What an import did.
+    */
+    public static class Result {
+        public final int rowsRead;
+        public final int imported;
+        public final int skipped;
+        public final int failed;
+
+        Result(int rowsRead, int imported, int skipped, int failed) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.skipped = skipped;
+            this.failed = failed;
+        }
+    }
+
+    private final Store store;
+    private final TmdbLookup lookup;
+
+    public WatchlistTransfer(Store store, TmdbLookup lookup) {
+        this.store = store;
+        this.lookup = lookup;
+    }
+
+    /*
+     Writes the whole watchlist, returns the number of rows.
+     the writer is closed at the end.
+    */
+    public int exportTo(Writer out, WatchlistFormat format) throws IOException {
+        int rows = 0;
+
+        try (WatchlistFormat.RowWriter writer = format.writer(out)) {
+            String after = null;
+            while (true) {
+                List<Movie> page = store.readPage(after, BATCH_SIZE);
+                for (Movie m : page) {
+                    writer.write(m);
+                }
+                rows += page.size();
+
+                if (page.size() < BATCH_SIZE) {
+                    break;
+                }
+                after = page.get(page.size() - 1).getTmdbId();
+            }
+        }
+        return rows;
+    }
+
+    /*
+     Reads the file and adds every row to the watchlist.
+     rows that TMDB does not know are skipped and counted,
+     rows TMDB could not be asked about too (as failed).
+     the reader is closed at the end.
+    */
+    public Result importFrom(Reader in, WatchlistFormat format, Progress progress)
+            throws IOException, InterruptedException {
+        int read = 0;
+        int imported = 0;
+        int skipped = 0;
+        int failed = 0;
+        List<Movie> batch = new ArrayList<>(BATCH_SIZE);
+
+        try (WatchlistFormat.RowReader reader = format.reader(in)) {
+            Movie row;
+            while ((row = reader.next()) != null) {
+                read++;
+
+                Movie movie;
+                try {
+                    movie = resolve(row);
+                } catch (IOException e) {
+                    failed++;
+                    continue;
+                }
+                if (movie == null) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(movie);
+
+                if (batch.size() == BATCH_SIZE) {
+                    store.writeBatch(batch);
+                    imported += batch.size();
+                    batch = new ArrayList<>(BATCH_SIZE);
+                    if (progress != null) {
+                        progress.onProgress(read, imported, skipped, failed);
+                    }
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            store.writeBatch(batch);
+            imported += batch.size();
+        }
+        if (progress != null) {
+            progress.onProgress(read, imported, skipped, failed);
+        }
+        return new Result(read, imported, skipped, failed);
+    }
+
+    /*
+     The fields an imported row writes (as a merge) over the stored row,
+     before = its fields, null if it is new. a row already there keeps its
+     avgRating and poster, and its rating when the file has none (0).
+     the rating is always in the map, it is the "after" 4 WatchlistSummary.
+     timestamps are the Store's, a row already there keeps its addedAt.
+    */
+    static Map<String, Object> merge(Movie row, Map<String, Object> before) {
+        Map<String, Object> fields = row.toMap();
+        if (before == null) {
+            return fields;
+        }
+
+        fields.remove("avgRating");
+        if (row.getPosterUrl() == null) {
+            fields.remove("posterUrl");
+        }
+        Object rating = before.get("rating");
+        if (row.getRating() == 0 && rating instanceof Number) {
+            fields.put("rating", ((Number) rating).intValue());
+        }
+        return fields;
+    }
+
+    /*
+     Row from the file -> watchlist movie, null if it can't be matched.
+     rows with an id are trusted (our own exports), the rest are looked up.
+     throws if TMDB could not be asked.
+    */
+    private Movie resolve(Movie row) throws IOException, InterruptedException {
+        if (row.getTmdbId() != null && row.getTitle() != null) {
+            return row;
+        }
+        if (row.getTitle() == null || row.getTitle().trim().isEmpty()) {
+            return null;
+        }
+
+        Movie found = lookup.find(row.getTitle());
+        if (found == null) {
+            return null;
+        }
+
+        Movie movie = new Movie();
+        movie.setTmdbId(found.getTmdbId());
+        movie.setTitle(found.getTitle());
+        movie.setPosterUrl(found.getPosterUrl());
+        movie.setRating(row.getRating());
+        return movie;
+    }
+}
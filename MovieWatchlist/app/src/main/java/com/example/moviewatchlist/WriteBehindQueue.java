@@ -0,0 +1,345 @@
+package com.example.moviewatchlist;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ WriteBehindQueue holds firestore writes 4 a moment and sends them together.
+ - writes to the same document are merged before they go out:
+   update + update = one update (last rating wins)
+   set + update    = one set with the new fields
+   set + delete    = one delete (the doc may have existed before the set)
+   delete + update = nothing to update, only the delete
+ - an update is sent as set(merge), a doc removed meanwhile (other device)
+   does not fail the whole batch
+ - flushed as WriteBatch (max 500 writes) after FLUSH_DELAY_MS or on flush(),
+   handed to firestore right away. its own queue keeps them on disk while
+   offline and retries what failed 4 network reasons, so a commit that
+   fails is final (permission denied, invalid data ...). those writes are
+   not sent again, the DropListener is told
+ - "coalesce" actions (like the global rating transaction) only run
+   the last one per key
+ - a chunk with watchlist docs also updates the user's WatchlistSummary
+   in the same batch, the difference comes from one pass over the local
+   cache (no server reads). a doc the cache does not have marks the
+   summary dirty, it is rebuilt then (see WatchlistSummary)
+ Main thread only.
+*/
+public class WriteBehindQueue {
+
+    private static final String TAG = "WriteBehindQueue";
+
+    static final long FLUSH_DELAY_MS = 1000;
+    static final int MAX_BATCH_WRITES = 500;
+
+    // writes per batch, room is left 4 the WatchlistSummary write
+    static final int CHUNK_WRITES = MAX_BATCH_WRITES - 1;
+
+    private enum Type { SET, UPDATE, DELETE }
+
+    private static class PendingWrite {
+        final DocumentReference ref;
+        Type type;
+        Map<String, Object> fields;
+
+        PendingWrite(DocumentReference ref, Type type, Map<String, Object> fields) {
+            this.ref = ref;
+            this.type = type;
+            this.fields = fields;
+        }
+    }
+
+    /*
+     Writes firestore rejected 4 good, main thread.
+    */
+    public interface DropListener {
+        void onDropped(int writes, Exception e);
+    }
+
+    private static WriteBehindQueue instance;
+    private static DropListener dropListener;
+
+    private final FirebaseFirestore db;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    // document path -> merged write, in first-write order
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private final Map<String, Runnable> actions = new LinkedHashMap<>();
+
+    private boolean scheduled;
+
+    // done once the last chunk is handed to firestore (not when the server has it),
+    // the next one waits 4 it so the batches keep their order
+    private Task<Void> handedOff = Tasks.forResult(null);
+
+    // metrics
+    private long writesRequested;
+    private long writesSent;
+
+    private final Runnable flushRunnable = () -> flush(true);
+
+    public static WriteBehindQueue get() {
+        if (instance == null) {
+            instance = new WriteBehindQueue(AppStartup.firestore());
+        }
+        return instance;
+    }
+
+    WriteBehindQueue(FirebaseFirestore db) {
+        this.db = db;
+    }
+
+    public static void setDropListener(DropListener listener) {
+        dropListener = listener;
+    }
+
+    /* Enqueue */
+
+    public void set(DocumentReference ref, Map<String, Object> fields) {
+        writesRequested++;
+        merge(new PendingWrite(ref, Type.SET, new HashMap<>(fields)));
+        schedule();
+    }
+
+    public void update(DocumentReference ref, String field, Object value) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(field, value);
+        update(ref, fields);
+    }
+
+    public void update(DocumentReference ref, Map<String, Object> fields) {
+        writesRequested++;
+        merge(new PendingWrite(ref, Type.UPDATE, new HashMap<>(fields)));
+        schedule();
+    }
+
+    public void delete(DocumentReference ref) {
+        writesRequested++;
+        merge(new PendingWrite(ref, Type.DELETE, null));
+        schedule();
+    }
+
+    /*
+     Runs only the last action given 4 this key, on the next flush.
+     4 writes that cant go in a batch, e.g. a transaction.
+    */
+    public void coalesce(String key, Runnable action) {
+        writesRequested++;
+        actions.put(key, action);
+        schedule();
+    }
+
+    /* Metrics */
+
+    public long getWritesRequested() {
+        return writesRequested;
+    }
+
+    public long getWritesSent() {
+        return writesSent;
+    }
+
+    /*
+     Writes that never had to go out because they were merged away.
+    */
+    public long getWritesSaved() {
+        return writesRequested - writesSent - pending.size() - actions.size();
+    }
+
+    /*
+     Sends everything now, e.g. from onPause. rejected writes go to the DropListener.
+    */
+    public void flush() {
+        flush(true);
+    }
+
+    /*
+     Sends everything now like flush(), 4 a bulk change that tells the
+     user itself. the task is the final outcome of everything sent:
+     it completes once the server has all of it (much later while offline,
+     firestore keeps it until then) or fails if a batch was rejected.
+     firestore has then already undone it in its local cache, the
+     listeners put the rows back. nothing is sent again.
+    */
+    public Task<Void> send() {
+        return flush(false);
+    }
+
+    private Task<Void> flush(boolean report) {
+        handler.removeCallbacks(flushRunnable);
+        scheduled = false;
+
+        if (!actions.isEmpty()) {
+            List<Runnable> run = new ArrayList<>(actions.values());
+            actions.clear();
+            writesSent += run.size();
+            for (Runnable r : run) {
+                r.run();
+            }
+        }
+
+        if (pending.isEmpty()) {
+            return Tasks.forResult(null);
+        }
+
+        List<PendingWrite> writes = new ArrayList<>(pending.values());
+        pending.clear();
+
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int start = 0; start < writes.size(); start += CHUNK_WRITES) {
+            List<PendingWrite> chunk = writes.subList(start, Math.min(writes.size(), start + CHUNK_WRITES));
+            commits.add(commit(chunk, report));
+        }
+        return Tasks.whenAll(commits);
+    }
+
+    /*
+     Hands chunk to firestore after the chunk before it,
+     the task is the server's answer.
+    */
+    private Task<Void> commit(List<PendingWrite> chunk, boolean report) {
+        TaskCompletionSource<Void> result = new TaskCompletionSource<>();
+        handedOff = handedOff.continueWithTask(t -> handOff(chunk)).continueWith(t -> {
+            if (!t.isSuccessful()) {
+                dropped(chunk.size(), t.getException(), report);
+                result.setException(t.getException());
+                return null;
+            }
+            writesSent += chunk.size();
+            t.getResult().addOnCompleteListener(task -> {
+                if (task.isSuccessful()) {
+                    result.setResult(null);
+                    return;
+                }
+                dropped(chunk.size(), task.getException(), report);
+                result.setException(task.getException());
+            });
+            return null;
+        });
+        return result.getTask();
+    }
+
+    private void dropped(int writes, Exception e, boolean report) {
+        Log.e(TAG, "Dropped " + writes + " writes", e);
+        if (report && dropListener != null) {
+            dropListener.onDropped(writes, e);
+        }
+    }
+
+    /*
+     Gives chunk to firestore as one batch, the result is the server's answer.
+     firestore applies it to its local cache at once, so the chunk before
+     is in the cache the summary difference is read from.
+    */
+    private Task<Task<Void>> handOff(List<PendingWrite> chunk) {
+        List<PendingWrite> counted = new ArrayList<>();
+        List<DocumentReference> refs = new ArrayList<>();
+        for (PendingWrite w : chunk) {
+            if (WatchlistSummary.covers(w.ref)) {
+                counted.add(w);
+                refs.add(w.ref);
+            }
+        }
+        if (counted.isEmpty()) {
+            return Tasks.forResult(write(chunk, db.batch()).commit());
+        }
+
+        return WatchlistSummary.cached(refs).continueWith(read -> {
+            List<DocumentSnapshot> befores = read.getResult();
+            List<Map<String, Object>> afters = new ArrayList<>();
+            for (int i = 0; i < counted.size(); i++) {
+                afters.add(after(counted.get(i), befores.get(i)));
+            }
+
+            WriteBatch batch = db.batch();
+            for (Map.Entry<DocumentReference, Map<String, Object>> e
+                    : WatchlistSummary.increments(refs, befores, afters, befores.contains(null)).entrySet()) {
+                batch.set(e.getKey(), e.getValue(), SetOptions.merge());
+            }
+            return write(chunk, batch).commit();
+        });
+    }
+
+    // the doc's fields once w is done, null if it won't be there
+    private static Map<String, Object> after(PendingWrite w, DocumentSnapshot before) {
+        switch (w.type) {
+            case SET:
+                return w.fields;
+            case UPDATE:
+                if (before == null || !before.exists() || before.getData() == null) {
+                    return w.fields; // merged into nothing, a new doc
+                }
+                Map<String, Object> fields = new HashMap<>(before.getData());
+                fields.putAll(w.fields);
+                return fields;
+            default:
+                return null;
+        }
+    }
+
+    private static WriteBatch write(List<PendingWrite> chunk, WriteBatch batch) {
+        for (PendingWrite w : chunk) {
+            switch (w.type) {
+                case SET:
+                    batch.set(w.ref, w.fields);
+                    break;
+                case UPDATE:
+                    batch.set(w.ref, w.fields, SetOptions.merge());
+                    break;
+                case DELETE:
+                    batch.delete(w.ref);
+                    break;
+            }
+        }
+        return batch;
+    }
+
+    private void merge(PendingWrite next) {
+        String key = next.ref.getPath();
+        PendingWrite prev = pending.get(key);
+
+        if (prev == null) {
+            pending.put(key, next);
+            return;
+        }
+
+        switch (next.type) {
+            case SET:
+            case DELETE:
+                // replaces whatever was queued
+                prev.type = next.type;
+                prev.fields = next.fields;
+                break;
+            case UPDATE:
+                if (prev.type == Type.DELETE) {
+                    break; // updating a deleted doc does nothing
+                }
+                prev.fields.putAll(next.fields);
+                break;
+        }
+    }
+
+    private void schedule() {
+        if (scheduled || (pending.isEmpty() && actions.isEmpty())) {
+            return;
+        }
+        handler.postDelayed(flushRunnable, FLUSH_DELAY_MS);
+        scheduled = true;
+    }
+}
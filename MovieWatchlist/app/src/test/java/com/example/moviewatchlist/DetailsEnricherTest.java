@@ -0,0 +1,246 @@
+package com.example.moviewatchlist;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ DetailsEnricher with a TmdbClient on a MockWebServer and a FakeMovieDao.
+ the io and main executors run in place and the clock is a field,
+ so the queue order and the retry times are checked without sleeping.
+ the server can hold its answers (Tmdb.hold) to keep movies running.
+*/
+public class DetailsEnricherTest {
+
+    private static final String NOT_FOUND = "404";
+    private static final String REFUSED = "401";
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private Tmdb tmdb;
+    private FakeMovieDao dao;
+    private DetailsEnricher enricher;
+    private volatile long now = 1_000_000_000L;
+
+    /*
+     /3/movie/{id}: 404 4 NOT_FOUND, 401 4 REFUSED, else the details.
+     while hold is set each answer waits 4 a permit of gate.
+    */
+    private static final class Tmdb extends Dispatcher {
+        final Semaphore gate = new Semaphore(0);
+        volatile boolean hold;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            if (hold) {
+                gate.tryAcquire(5, TimeUnit.SECONDS);
+            }
+            String id = request.getRequestUrl().pathSegments().get(2);
+            switch (id) {
+                case NOT_FOUND:
+                    return new MockResponse().setResponseCode(404);
+                case REFUSED:
+                    return new MockResponse().setResponseCode(401);
+                default:
+                    return new MockResponse().setBody("{\"id\":" + id + ",\"runtime\":148,"
+                            + "\"release_date\":\"2010-07-16\",\"genres\":[{\"id\":28,\"name\":\"Action\"}]}");
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        tmdb = new Tmdb();
+        server = new MockWebServer();
+        server.setDispatcher(tmdb);
+        server.start();
+        dao = new FakeMovieDao();
+        enricher = new DetailsEnricher(
+                new TmdbClient(cacheDir.getRoot(), server.url("/3/"), "key"),
+                dao, Runnable::run, Runnable::run, () -> now);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        tmdb.gate.release(100);
+        server.shutdown();
+    }
+
+    @Test
+    public void atMostMaxParallelRunAtOnce() throws InterruptedException {
+        tmdb.hold = true;
+        enricher.prefetch(Arrays.asList(movie("1"), movie("2"), movie("3"), movie("4"), movie("5")));
+
+        // the first four are started, the fifth waits 4 one of them
+        assertEquals(DetailsEnricher.MAX_PARALLEL, dao.lookups.size());
+        for (int i = 0; i < DetailsEnricher.MAX_PARALLEL; i++) {
+            assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        }
+        assertNull(server.takeRequest(200, TimeUnit.MILLISECONDS));
+
+        tmdb.gate.release();
+        takeLookups(DetailsEnricher.MAX_PARALLEL);
+        assertEquals("5", dao.lookups.poll(5, TimeUnit.SECONDS));
+
+        tmdb.gate.release(DetailsEnricher.MAX_PARALLEL);
+        awaitIdle();
+        assertEquals(5, enricher.getFetched());
+        assertEquals(5, server.getRequestCount());
+    }
+
+    @Test
+    public void visibleRowsGoBeforePrefetched() throws InterruptedException {
+        tmdb.hold = true;
+        enricher.prefetch(Arrays.asList(movie("1"), movie("2"), movie("3"), movie("4")));
+        takeLookups(DetailsEnricher.MAX_PARALLEL);
+
+        enricher.prefetch(Arrays.asList(movie("5"), movie("6"), movie("7")));
+        enricher.request("8", true);
+        enricher.request("7", true); // already queued, moves to the front
+        assertEquals(0, dao.lookups.size());
+
+        // each answer frees one slot: 7 and 8 (on screen, newest first), then 5 and 6 in list order
+        for (String expected : new String[]{"7", "8", "5", "6"}) {
+            tmdb.gate.release();
+            assertEquals(expected, dao.lookups.poll(5, TimeUnit.SECONDS));
+        }
+
+        tmdb.gate.release(DetailsEnricher.MAX_PARALLEL);
+        awaitIdle();
+        assertEquals(8, enricher.getFetched());
+    }
+
+    @Test
+    public void notFoundIsNotAskedAgainUntilItsRetryTime() throws InterruptedException {
+        enricher.request(NOT_FOUND, true);
+        awaitIdle();
+        assertEquals(1, enricher.getFailed());
+        assertEquals(1, server.getRequestCount());
+
+        // neither the table nor TMDB, on every bind of the row
+        dao.lookups.clear();
+        now += DetailsEnricher.NOT_FOUND_MILLIS - 1;
+        enricher.request(NOT_FOUND, true);
+        enricher.prefetch(Arrays.asList(movie(NOT_FOUND)));
+        assertEquals(0, dao.lookups.size());
+        assertEquals(1, server.getRequestCount());
+
+        now += 1;
+        enricher.request(NOT_FOUND, true);
+        awaitIdle();
+        assertEquals(1, dao.lookups.size());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, enricher.getFailed());
+    }
+
+    @Test
+    public void failureBacksOffAndDoublesUntilItExpires() throws InterruptedException {
+        enricher.request(REFUSED, true);
+        awaitIdle();
+        assertEquals(1, server.getRequestCount());
+
+        long wait = DetailsEnricher.RETRY_MIN_MILLIS;
+        for (int failures = 1; failures <= 3; failures++) {
+            now += wait - 1;
+            enricher.request(REFUSED, true);
+            assertEquals(failures, server.getRequestCount());
+
+            now += 1;
+            enricher.request(REFUSED, true);
+            awaitIdle();
+            assertEquals(failures + 1, server.getRequestCount());
+            assertEquals(failures + 1, enricher.getFailed());
+            wait *= 2;
+        }
+    }
+
+    @Test
+    public void backoffStopsAtTheMaximum() throws InterruptedException {
+        long wait = DetailsEnricher.RETRY_MIN_MILLIS;
+        while (true) {
+            enricher.request(REFUSED, true);
+            awaitIdle();
+            if (wait == DetailsEnricher.RETRY_MAX_MILLIS) {
+                break;
+            }
+            now += wait;
+            wait = Math.min(DetailsEnricher.RETRY_MAX_MILLIS, wait * 2);
+        }
+        int asked = server.getRequestCount();
+
+        now += DetailsEnricher.RETRY_MAX_MILLIS - 1;
+        enricher.request(REFUSED, true);
+        assertEquals(asked, server.getRequestCount());
+
+        now += 1;
+        enricher.request(REFUSED, true);
+        awaitIdle();
+        assertEquals(asked + 1, server.getRequestCount());
+    }
+
+    @Test
+    public void savedDetailsAreUsedUntilTheyExpire() throws InterruptedException {
+        dao.details.put("1", row("1", now));
+        dao.details.put("2", row("2", now - DetailsEnricher.TTL_MILLIS - 1));
+
+        enricher.prefetch(Arrays.asList(movie("1"), movie("2")));
+        awaitIdle();
+
+        // 1 from the table only, 2 shown stale and fetched again
+        assertEquals(new HashSet<>(Arrays.asList("1", "2")), new HashSet<>(dao.lookups));
+        assertEquals(1, server.getRequestCount());
+        assertEquals("/3/movie/2?api_key=key", server.takeRequest().getPath());
+        assertEquals(1, enricher.getFetched());
+        assertEquals(now, dao.details.get("2").fetchedAt);
+        assertEquals(now, enricher.remembered("2").fetchedAt);
+        assertTrue(enricher.remembered("1").genres.isEmpty());
+    }
+
+    private void takeLookups(int count) throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            assertNotNull(dao.lookups.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    // the okhttp callbacks finish on their own threads
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!enricher.isIdle() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("still fetching", enricher.isIdle());
+    }
+
+    private static Movie movie(String tmdbId) {
+        Movie movie = new Movie();
+        movie.setTmdbId(tmdbId);
+        return movie;
+    }
+
+    private static MovieDetailsRow row(String tmdbId, long fetchedAt) {
+        MovieDetailsRow row = new MovieDetailsRow();
+        row.tmdbId = tmdbId;
+        row.fetchedAt = fetchedAt;
+        return row;
+    }
+}
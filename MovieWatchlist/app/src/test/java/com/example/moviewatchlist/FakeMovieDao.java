@@ -0,0 +1,64 @@
+package com.example.moviewatchlist;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/*
+ In memory movie_details 4 DetailsEnricher, the movie_rows queries are not used there.
+ every findDetails id is kept in lookups, in order (DetailsEnricher asks
+ the table first, so that is the order movies were started in).
+*/
+class FakeMovieDao implements MovieDao {
+
+    final Map<String, MovieDetailsRow> details = new ConcurrentHashMap<>();
+    final BlockingQueue<String> lookups = new LinkedBlockingQueue<>();
+
+    @Override
+    public MovieDetailsRow findDetails(String tmdbId) {
+        lookups.add(tmdbId);
+        return details.get(tmdbId);
+    }
+
+    @Override
+    public void upsertDetails(MovieDetailsRow row) {
+        details.put(row.tmdbId, row);
+    }
+
+    @Override
+    public List<MovieRow> getList(String list) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MovieRow find(String list, String tmdbId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void upsert(List<MovieRow> rows) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void delete(String list, String tmdbId) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clearList(String list) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clearAll() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void shift(String list, int from, int by) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.moviewatchlist;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ In memory ShardedRatingCounter.Store that behaves like firestore's
+ optimistic transactions: a transaction remembers the version of each
+ doc it read and only commits if none of them changed meanwhile,
+ else it runs again (MAX_ATTEMPTS like the sdk, then it fails).
+ each read inside a transaction and each commit sleeps roundTripMillis,
+ 4 the network.
+*/
+class FakeRatingStore implements ShardedRatingCounter.Store {
+
+    static final int MAX_ATTEMPTS = 5;
+
+    private static final class Doc {
+        final long version;
+        final Map<String, Object> fields;
+
+        Doc(long version, Map<String, Object> fields) {
+            this.version = version;
+            this.fields = fields;
+        }
+    }
+
+    private final long roundTripMillis;
+
+    // guarded by this
+    private final Map<String, Doc> docs = new HashMap<>();
+    private long clock;
+
+    final AtomicLong commits = new AtomicLong();
+    final AtomicLong retries = new AtomicLong();
+
+    FakeRatingStore(long roundTripMillis) {
+        this.roundTripMillis = roundTripMillis;
+    }
+
+    synchronized void put(String path, Map<String, Object> fields) {
+        docs.put(path, new Doc(++clock, new HashMap<>(fields)));
+    }
+
+    @Override
+    public synchronized Map<String, Object> get(String path) {
+        Doc doc = docs.get(path);
+        return doc != null ? new HashMap<>(doc.fields) : null;
+    }
+
+    @Override
+    public synchronized List<Map<String, Object>> list(String collectionPath) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        String prefix = collectionPath + "/";
+        for (Map.Entry<String, Doc> e : docs.entrySet()) {
+            String path = e.getKey();
+            if (path.startsWith(prefix) && path.indexOf('/', prefix.length()) < 0) {
+                result.add(new HashMap<>(e.getValue().fields));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T inTransaction(ShardedRatingCounter.Work<T> work) throws IOException {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            FakeTx tx = new FakeTx();
+            T result = work.run(tx);
+            sleep();
+            if (commit(tx)) {
+                commits.incrementAndGet();
+                return result;
+            }
+            retries.incrementAndGet();
+        }
+        throw new IOException("ABORTED: too much contention");
+    }
+
+    private void sleep() throws IOException {
+        try {
+            Thread.sleep(roundTripMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private synchronized boolean commit(FakeTx tx) {
+        for (Map.Entry<String, Long> read : tx.reads.entrySet()) {
+            Doc doc = docs.get(read.getKey());
+            if ((doc != null ? doc.version : 0) != read.getValue()) {
+                return false;
+            }
+        }
+        for (Runnable write : tx.writes) {
+            write.run();
+        }
+        return true;
+    }
+
+    // under the lock
+    private void write(String path, Map<String, Object> fields, boolean merge) {
+        Doc old = docs.get(path);
+        Map<String, Object> next = merge && old != null ? new HashMap<>(old.fields) : new HashMap<>();
+        for (Map.Entry<String, Object> e : fields.entrySet()) {
+            Object value = e.getValue() == ShardedRatingCounter.SERVER_TIME ? clock : e.getValue();
+            next.put(e.getKey(), value);
+        }
+        docs.put(path, new Doc(++clock, next));
+    }
+
+    private final class FakeTx implements ShardedRatingCounter.Tx {
+        final Map<String, Long> reads = new HashMap<>();
+        final List<Runnable> writes = new ArrayList<>();
+
+        @Override
+        public Map<String, Object> get(String path) throws IOException {
+            if (!writes.isEmpty()) {
+                throw new IllegalStateException("read after write in a transaction");
+            }
+            FakeRatingStore.this.sleep();
+            synchronized (FakeRatingStore.this) {
+                Doc doc = docs.get(path);
+                reads.put(path, doc != null ? doc.version : 0);
+                return doc != null ? new HashMap<>(doc.fields) : null;
+            }
+        }
+
+        @Override
+        public void set(String path, Map<String, Object> fields) {
+            writes.add(() -> write(path, fields, false));
+        }
+
+        @Override
+        public void merge(String path, Map<String, Object> fields) {
+            writes.add(() -> write(path, fields, true));
+        }
+
+        @Override
+        public void add(String path, Map<String, Number> deltas) {
+            writes.add(() -> {
+                Doc old = docs.get(path);
+                Map<String, Object> fields = new HashMap<>();
+                for (Map.Entry<String, Number> e : deltas.entrySet()) {
+                    Object current = old != null ? old.fields.get(e.getKey()) : null;
+                    double sum = ShardedRatingCounter.number(current) + e.getValue().doubleValue();
+                    fields.put(e.getKey(), e.getValue() instanceof Long ? (Object) (long) sum : (Object) sum);
+                }
+                write(path, fields, true);
+            });
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.moviewatchlist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ In memory WatchlistTransfer.Store, rows by tmdbId as plain maps.
+ writes merge like FirestoreWatchlistStore (WatchlistTransfer.merge),
+ addedAt is a counter instead of the server's time.
+*/
+class FakeWatchlistStore implements WatchlistTransfer.Store {
+
+    final TreeMap<String, Map<String, Object>> docs = new TreeMap<>();
+    final List<Integer> batchSizes = new ArrayList<>();
+
+    private long clock;
+
+    @Override
+    public List<Movie> readPage(String afterId, int limit) {
+        Map<String, Map<String, Object>> rest = afterId != null ? docs.tailMap(afterId, false) : docs;
+
+        List<Movie> page = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> e : rest.entrySet()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(movie(e.getKey(), e.getValue()));
+        }
+        return page;
+    }
+
+    @Override
+    public void writeBatch(List<Movie> movies) {
+        batchSizes.add(movies.size());
+        for (Movie m : movies) {
+            Map<String, Object> before = docs.get(m.getTmdbId());
+            Map<String, Object> doc = before != null ? new HashMap<>(before) : new HashMap<>();
+            doc.putAll(WatchlistTransfer.merge(m, before));
+            if (before == null) {
+                doc.put("addedAt", ++clock);
+            }
+            docs.put(m.getTmdbId(), doc);
+        }
+    }
+
+    void put(String tmdbId, String title, int rating) {
+        Movie m = new Movie();
+        m.setTmdbId(tmdbId);
+        m.setTitle(title);
+        m.setRating(rating);
+        writeBatch(Collections.singletonList(m));
+        batchSizes.clear();
+    }
+
+    int rating(String tmdbId) {
+        return ((Number) docs.get(tmdbId).get("rating")).intValue();
+    }
+
+    private static Movie movie(String tmdbId, Map<String, Object> doc) {
+        Movie m = new Movie();
+        m.setTmdbId(tmdbId);
+        m.setTitle((String) doc.get("title"));
+        m.setPosterUrl((String) doc.get("posterUrl"));
+        m.setRating(((Number) doc.get("rating")).intValue());
+        return m;
+    }
+}
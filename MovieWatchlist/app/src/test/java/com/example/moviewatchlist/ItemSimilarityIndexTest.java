@@ -0,0 +1,119 @@
+package com.example.moviewatchlist;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ItemSimilarityIndexTest {
+
+    @Test
+    public void moviesRatedTogetherAreNeighbours() {
+        ItemSimilarityIndex index = new ItemSimilarityIndex();
+        for (int u = 0; u < 10; u++) {
+            index.setRating("u" + u, "a", 5);
+            index.setRating("u" + u, "b", 4);
+        }
+        index.setRating("other", "c", 5);
+
+        List<ItemSimilarityIndex.Neighbor> neighbors = index.neighbors("a");
+        assertEquals(1, neighbors.size());
+        assertEquals("b", neighbors.get(0).tmdbId);
+    }
+
+    @Test
+    public void takingARatingBackRemovesThePair() {
+        ItemSimilarityIndex index = new ItemSimilarityIndex();
+        index.setRating("u", "a", 5);
+        index.setRating("u", "b", 5);
+        index.setRating("u", "b", 0);
+
+        assertTrue(index.neighbors("a").isEmpty());
+    }
+
+    // the pair (new movie, evicted movie) used to be counted and never taken back
+    @Test
+    public void evictedRatingLeavesNoPairWithTheNewOne() {
+        ItemSimilarityIndex index = new ItemSimilarityIndex();
+        for (int m = 0; m <= ItemSimilarityIndex.MAX_RATINGS_PER_USER; m++) {
+            index.setRating("u", "m" + m, 5);
+        }
+
+        String newest = "m" + ItemSimilarityIndex.MAX_RATINGS_PER_USER;
+        for (ItemSimilarityIndex.Neighbor n : index.neighbors(newest)) {
+            assertNotEquals("m0", n.tmdbId);
+        }
+        assertTrue(index.neighbors("m0").isEmpty());
+    }
+
+    @Test
+    public void setRatingsTakesBackWhatIsMissing() {
+        ItemSimilarityIndex index = new ItemSimilarityIndex();
+        index.setRating("u", "a", 5);
+        index.setRating("u", "b", 5);
+        index.setRating("v", "a", 4);
+        index.setRating("v", "b", 4);
+        index.takeChanged();
+
+        LinkedHashMap<String, Float> ratings = new LinkedHashMap<>();
+        ratings.put("a", 5f);
+        index.setRatings("u", ratings);
+        ratings.put("a", 4f);
+        index.setRatings("v", ratings);
+
+        assertTrue(index.neighbors("a").isEmpty());
+        assertEquals(2, index.takeChanged().size());
+    }
+
+    @Test
+    public void sameRatingsAgainChangeNothing() {
+        ItemSimilarityIndex index = new ItemSimilarityIndex();
+        LinkedHashMap<String, Float> ratings = new LinkedHashMap<>();
+        ratings.put("a", 5f);
+        ratings.put("b", 3f);
+        index.setRatings("u", ratings);
+        assertEquals(2, index.takeChanged().size());
+
+        index.setRatings("u", ratings);
+        assertTrue(index.takeChanged().isEmpty());
+    }
+
+    @Test
+    public void readFromGivesTheSameNeighbours() throws IOException {
+        ItemSimilarityIndex index = new ItemSimilarityIndex();
+        for (int u = 0; u < 20; u++) {
+            for (int m = 0; m < 10; m++) {
+                index.setRating("u" + u, "m" + m, 1 + (u * m) % 5);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        ItemSimilarityIndex copy = ItemSimilarityIndex.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        for (int m = 0; m < 10; m++) {
+            List<ItemSimilarityIndex.Neighbor> a = index.neighbors("m" + m);
+            List<ItemSimilarityIndex.Neighbor> b = copy.neighbors("m" + m);
+            assertEquals(a.size(), b.size());
+            for (int n = 0; n < a.size(); n++) {
+                assertEquals(a.get(n).tmdbId, b.get(n).tmdbId);
+                assertEquals(a.get(n).score, b.get(n).score, 0f);
+            }
+        }
+
+        // the users came along: a change after loading is applied like before
+        index.setRating("u0", "m1", 0);
+        copy.setRating("u0", "m1", 0);
+        assertEquals(index.neighbors("m1").get(0).score, copy.neighbors("m1").get(0).score, 0f);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.moviewatchlist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ LeaderboardService on a fake source (counts listens) and a fake saved copy.
+*/
+public class LeaderboardServiceTest {
+
+    private static final long NOW = 1_000_000_000L;
+
+    static final class FakeSource implements LeaderboardService.Source {
+        int listens;
+        int limit;
+        LeaderboardService.Sink sink;
+
+        @Override
+        public LeaderboardService.Registration listen(int limit, LeaderboardService.Sink sink) {
+            listens++;
+            this.limit = limit;
+            this.sink = sink;
+            return () -> this.sink = null;
+        }
+    }
+
+    static final class FakeSaved implements LeaderboardService.Saved {
+        List<Movie> movies = new ArrayList<>();
+        long savedAt;
+
+        @Override
+        public void read(LeaderboardService.SavedCallback callback) {
+            callback.onSaved(new ArrayList<>(movies), savedAt);
+        }
+
+        @Override
+        public void write(List<Movie> movies, long savedAt) {
+            this.movies = new ArrayList<>(movies);
+            this.savedAt = savedAt;
+        }
+    }
+
+    private FakeSource source;
+    private FakeSaved saved;
+    private List<Movie> shown;
+
+    @Before
+    public void setUp() {
+        source = new FakeSource();
+        saved = new FakeSaved();
+    }
+
+    private LeaderboardService open() {
+        LeaderboardService service = new LeaderboardService(source, saved, () -> NOW);
+        service.start(new LeaderboardService.Listener() {
+            @Override
+            public void onLeaderboard(List<Movie> movies) {
+                shown = movies;
+            }
+
+            @Override
+            public void onError(Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        return service;
+    }
+
+    private static List<Movie> movies(int n, double topScore) {
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Movie m = new Movie();
+            m.setTmdbId(String.valueOf(i));
+            m.setTitle("Movie " + i);
+            m.setScore(topScore - i * 0.01);
+            movies.add(m);
+        }
+        return movies;
+    }
+
+    @Test
+    public void freshCopyOpensWithNoReads() {
+        saved.write(movies(100, 5), NOW - 60_000);
+
+        open();
+
+        assertEquals(0, source.listens);
+        assertEquals(10, shown.size()); // a saved top 100 is still a top 10
+    }
+
+    @Test
+    public void staleCopyIsShownThenListened() {
+        saved.write(movies(10, 5), NOW - LeaderboardService.ROLLUP_MILLIS);
+
+        open();
+
+        assertEquals(10, shown.size());
+        assertEquals(1, source.listens);
+        assertEquals(10, source.limit);
+
+        source.sink.onTop(movies(10, 4), true);
+        assertEquals(NOW, saved.savedAt);
+        assertEquals(4.0, shown.get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    public void nothingSavedListens() {
+        open();
+
+        assertEquals(1, source.listens);
+        source.sink.onTop(movies(3, 5), false); // cache only, still shown
+        assertEquals(3, shown.size());
+        assertEquals(0, saved.savedAt);
+    }
+
+    @Test
+    public void moreThanTheCopyHasListens() {
+        saved.write(movies(10, 5), NOW);
+        LeaderboardService service = open();
+
+        service.loadMore();
+
+        assertEquals(50, service.getLimit());
+        assertEquals(1, source.listens);
+        assertEquals(50, source.limit);
+    }
+
+    @Test
+    public void everyOpenStartsAtTen() {
+        saved.write(movies(100, 5), NOW);
+        LeaderboardService service = open();
+        service.loadMore();
+        service.loadMore();
+        assertEquals(100, shown.size());
+        service.stop();
+
+        service.start(new LeaderboardService.Listener() {
+            @Override
+            public void onLeaderboard(List<Movie> movies) {
+                shown = movies;
+            }
+
+            @Override
+            public void onError(Exception e) {
+            }
+        });
+
+        assertEquals(10, service.getLimit());
+        assertEquals(10, shown.size());
+        assertEquals(0, source.listens);
+    }
+
+    @Test
+    public void ownRatingIsPlacedByScore() {
+        saved.write(movies(10, 3), NOW);
+        LeaderboardService service = open();
+
+        Movie rated = new Movie();
+        rated.setTmdbId("new");
+        rated.setTitle("New");
+        ShardedRatingCounter.Totals totals = new ShardedRatingCounter.Totals(5 * 1000, 1000);
+        service.applyAggregate(rated, totals);
+
+        assertEquals("new", shown.get(0).getTmdbId());
+        assertEquals(10, shown.size());
+        assertEquals(NOW, saved.savedAt); // our rating does not make the copy newer
+        assertEquals("new", saved.movies.get(0).getTmdbId());
+        assertEquals(0, source.listens);
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.moviewatchlist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ ShardedRatingCounter against FakeRatingStore, a store with firestore's
+ optimistic transactions and a round trip per read.
+*/
+public class ShardedRatingCounterTest {
+
+    private static final String HOT = "603";
+    private static final int THREADS = 8;
+    private static final int RATINGS_PER_THREAD = 250;
+    private static final long ROUND_TRIP_MS = 1;
+
+    private FakeRatingStore store;
+    private ShardedRatingCounter counter;
+
+    @Before
+    public void setUp() {
+        RankingEngine.setPriorMean(RankingEngine.DEFAULT_PRIOR_MEAN);
+        store = new FakeRatingStore(ROUND_TRIP_MS);
+        counter = new ShardedRatingCounter(store);
+    }
+
+    @Test
+    public void hotMovieRatingsDoNotConflict() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            runs.add(pool.submit(() -> {
+                for (int i = 0; i < RATINGS_PER_THREAD; i++) {
+                    counter.setUserRating(movie(HOT), "u" + thread + "-" + i, 1 + i % 5);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> run : runs) {
+            run.get();
+        }
+        pool.shutdown();
+
+        int ratings = THREADS * RATINGS_PER_THREAD;
+        ShardedRatingCounter.Totals totals = counter.totals(HOT);
+        assertEquals(ratings, totals.totalRatings);
+        assertEquals(THREADS * (RATINGS_PER_THREAD / 5) * 15.0, totals.sum, 1e-9);
+        assertEquals(0, store.retries.get());
+        assertEquals(null, store.get(ShardedRatingCounter.movieRef(HOT))); // the hot doc is not written
+    }
+
+    // what updateGlobalRating did before the shards: every rating rewrites movies/{id}.
+    // two ratings that both read the doc before either commits, the second one has to run again
+    @Test
+    public void oneDocCounterConflicts() throws Exception {
+        CountDownLatch bothRead = new CountDownLatch(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            runs.add(pool.submit(() -> store.inTransaction(tx -> {
+                Map<String, Object> doc = tx.get(ShardedRatingCounter.movieRef(HOT));
+                bothRead.countDown();
+                await(bothRead); // at once on the second attempt
+                Map<String, Object> next = new HashMap<>();
+                next.put("totalRatings", (long) ShardedRatingCounter.number(
+                        doc != null ? doc.get("totalRatings") : null) + 1);
+                tx.set(ShardedRatingCounter.movieRef(HOT), next);
+                return null;
+            })));
+        }
+        for (Future<?> run : runs) {
+            run.get();
+        }
+        pool.shutdown();
+
+        assertEquals(1, store.retries.get());
+        assertEquals(2L, store.get(ShardedRatingCounter.movieRef(HOT)).get("totalRatings"));
+    }
+
+    @Test
+    public void reRatingOnlyMovesTheSum() throws IOException {
+        counter.setUserRating(movie("1"), "alice", 2);
+        counter.setUserRating(movie("1"), "alice", 5);
+        counter.setUserRating(movie("1"), "bob", 3);
+
+        ShardedRatingCounter.Totals totals = counter.totals("1");
+        assertEquals(2, totals.totalRatings);
+        assertEquals(8.0, totals.sum, 1e-9);
+        assertEquals(4.0, totals.avgRating, 1e-9);
+    }
+
+    @Test
+    public void legacyTotalsAreSeededOnce() throws IOException {
+        store.put(ShardedRatingCounter.movieRef("2"), legacy(4.0, 10));
+
+        counter.setUserRating(movie("2"), "alice", 5);
+        counter.setUserRating(movie("2"), "bob", 5);
+
+        ShardedRatingCounter.Totals totals = counter.totals("2");
+        assertEquals(12, totals.totalRatings);
+        assertEquals(50.0, totals.sum, 1e-9);
+        assertEquals(true, store.get(ShardedRatingCounter.movieRef("2")).get(ShardedRatingCounter.FIELD_SHARDED));
+    }
+
+    @Test
+    public void rollUpWritesTotalsAndScore() throws IOException {
+        counter.setUserRating(movie("3"), "alice", 4);
+        counter.setUserRating(movie("3"), "bob", 2);
+
+        ShardedRatingCounter.Totals totals = counter.rollUp("3", null);
+
+        Map<String, Object> doc = store.get(ShardedRatingCounter.movieRef("3"));
+        assertEquals(3.0, (double) doc.get(ShardedRatingCounter.FIELD_AVG_RATING), 1e-9);
+        assertEquals(2L, doc.get(ShardedRatingCounter.FIELD_TOTAL_RATINGS));
+        assertEquals(RankingEngine.score(6, 2), (double) doc.get(RankingEngine.FIELD_SCORE), 1e-9);
+        assertEquals(totals.score, (double) doc.get(RankingEngine.FIELD_SCORE), 1e-9);
+    }
+
+    @Test
+    public void rollUpOfALegacyMovieKeepsItsHistory() throws IOException {
+        store.put(ShardedRatingCounter.movieRef("4"), legacy(3.5, 20));
+
+        counter.rollUp("4", null);
+        counter.setUserRating(movie("4"), "alice", 5);
+        ShardedRatingCounter.Totals totals = counter.rollUp("4", null);
+
+        assertEquals(21, totals.totalRatings);
+        assertEquals(75.0, totals.sum, 1e-9);
+    }
+
+    // a roll-up racing ratings never leaves an older total behind
+    @Test
+    public void lastRollUpMatchesTheShards() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            runs.add(pool.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    if (thread == 0) {
+                        try {
+                            counter.rollUp(HOT, null);
+                        } catch (IOException e) {
+                            // contention, the next one catches up
+                        }
+                    } else {
+                        counter.setUserRating(movie(HOT), "u" + thread + "-" + i, 4);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> run : runs) {
+            run.get();
+        }
+        pool.shutdown();
+
+        counter.rollUp(HOT, null);
+        Map<String, Object> doc = store.get(ShardedRatingCounter.movieRef(HOT));
+        assertEquals((long) (THREADS - 1) * 20, doc.get(ShardedRatingCounter.FIELD_TOTAL_RATINGS));
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IOException("the other transaction never read");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static Movie movie(String id) {
+        Movie movie = new Movie();
+        movie.setTmdbId(id);
+        movie.setTitle("Movie " + id);
+        return movie;
+    }
+
+    private static Map<String, Object> legacy(double avgRating, long totalRatings) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put(ShardedRatingCounter.FIELD_AVG_RATING, avgRating);
+        doc.put(ShardedRatingCounter.FIELD_TOTAL_RATINGS, totalRatings);
+        return doc;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.moviewatchlist;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/*
+ TmdbClient's disk cache and its counters against a MockWebServer.
+ TMDB sends no usable max-age, the client adds its own (MaxAgeInterceptor).
+*/
+public class TmdbClientTest {
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private TmdbClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        client = new TmdbClient(cacheDir.getRoot(), server.url("/3/"), "key");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void repeatedSearchIsACacheHit() throws Exception {
+        server.enqueue(new MockResponse().setBody("alien").setHeader("Cache-Control", "no-cache"));
+
+        assertEquals("alien", search("alien"));
+        assertEquals("alien", search("alien"));
+
+        assertEquals(1, server.getRequestCount());
+        assertCounts(2, 1, 0, 1);
+    }
+
+    @Test
+    public void staleSearchIsRevalidatedWith304() throws Exception {
+        // Age past the search max-age, as if it had been cached that long ago
+        server.enqueue(new MockResponse().setBody("heat")
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Age", TmdbClient.SEARCH_MAX_AGE_SECONDS + 1));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        assertEquals("heat", search("heat"));
+        assertEquals("heat", search("heat"));
+
+        assertEquals(2, server.getRequestCount());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        RecordedRequest second = server.takeRequest();
+        assertEquals("\"v1\"", second.getHeader("If-None-Match"));
+        assertCounts(2, 0, 1, 1);
+    }
+
+    @Test
+    public void countersAddUpToTheRequests() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b")
+                .setHeader("ETag", "\"b1\"")
+                .setHeader("Age", TmdbClient.SEARCH_MAX_AGE_SECONDS + 1));
+        server.enqueue(new MockResponse().setResponseCode(304));
+        server.enqueue(new MockResponse().setBody("c"));
+
+        search("a");
+        search("a");
+        search("b");
+        search("b");
+        search("c");
+        search("a");
+
+        // a: miss, hit, hit. b: miss, revalidated. c: miss
+        assertCounts(6, 2, 1, 3);
+        assertEquals(client.getRequestCount(),
+                client.getCacheHitCount() + client.getRevalidatedCount() + client.getCacheMissCount());
+    }
+
+    private String search(String query) throws IOException {
+        try (Response response = client.newSearchCall(query).execute()) {
+            return response.body().string();
+        }
+    }
+
+    private void assertCounts(int requests, int hits, int revalidated, int misses) {
+        assertEquals("requests", requests, client.getRequestCount());
+        assertEquals("hits", hits, client.getCacheHitCount());
+        assertEquals("revalidated", revalidated, client.getRevalidatedCount());
+        assertEquals("misses", misses, client.getCacheMissCount());
+    }
+}
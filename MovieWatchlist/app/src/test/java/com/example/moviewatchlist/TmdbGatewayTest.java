@@ -0,0 +1,208 @@
+package com.example.moviewatchlist;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ TmdbGateway against a MockWebServer that fails on purpose:
+ 5xx / 429 / dropped connections, with and without a cached answer.
+*/
+public class TmdbGatewayTest {
+
+    @Rule
+    public TemporaryFolder cacheDir = new TemporaryFolder();
+
+    private MockWebServer server;
+    private CircuitBreaker breaker;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        breaker = new CircuitBreaker(TmdbGateway.FAILURES_TO_OPEN, TmdbGateway.OPEN_MILLIS);
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir.getRoot(), 1024 * 1024))
+                .addInterceptor(new TmdbGateway(breaker))
+                .build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void retriesA5xxThenSucceeds() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody("ok"));
+
+        try (Response response = get("/search/movie?query=a")) {
+            assertEquals(200, response.code());
+            assertEquals("ok", response.body().string());
+        }
+        assertEquals(2, server.getRequestCount());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    // the last failed response used to stay open while the cache was asked
+    @Test
+    public void outageWithoutCacheReturnsTheErrorCode() throws IOException {
+        for (int i = 0; i < TmdbGateway.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503).setBody("down"));
+        }
+
+        try (Response response = get("/search/movie?query=b")) {
+            assertEquals(503, response.code());
+            assertEquals("down", response.body().string());
+        }
+        assertEquals(TmdbGateway.MAX_ATTEMPTS, server.getRequestCount());
+    }
+
+    @Test
+    public void longRetryAfterIsNotWaitedFor() throws IOException {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "60"));
+
+        try (Response response = get("/search/movie?query=c")) {
+            assertEquals(429, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void outageOnEnqueueCallsOnResponse() throws Exception {
+        for (int i = 0; i < TmdbGateway.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        CompletableFuture<Integer> code = new CompletableFuture<>();
+        client.newCall(request("/movie/42")).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                code.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                code.complete(response.code());
+            }
+        });
+
+        assertEquals(500, (int) code.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void outageServesTheStaleCache() throws IOException {
+        server.enqueue(new MockResponse().setBody("cached").setHeader("Cache-Control", "max-age=0"));
+        for (int i = 0; i < TmdbGateway.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(502));
+        }
+
+        try (Response first = get("/search/movie?query=d")) {
+            assertEquals("cached", first.body().string());
+        }
+        try (Response second = get("/search/movie?query=d")) {
+            assertEquals(200, second.code());
+            assertEquals("cached", second.body().string());
+        }
+    }
+
+    @Test
+    public void droppedConnectionsFailWithoutCache() {
+        for (int i = 0; i < TmdbGateway.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        }
+
+        boolean failed = false;
+        try {
+            get("/search/movie?query=e").close(); // not reached
+        } catch (IOException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+    }
+
+    @Test
+    public void openBreakerDoesNotCallTmdb() throws IOException {
+        for (int i = 0; i < TmdbGateway.FAILURES_TO_OPEN; i++) {
+            breaker.onFailure();
+        }
+        assertFalse(breaker.allowRequest());
+
+        boolean failed = false;
+        try {
+            get("/search/movie?query=f").close(); // not reached
+        } catch (IOException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void sameUrlAtOnceIsFetchedOnce() throws Exception {
+        server.enqueue(new MockResponse().setBody("shared").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse().setBody("second"));
+
+        CompletableFuture<String> a = async("/search/movie?query=g");
+        CompletableFuture<String> b = async("/search/movie?query=g");
+
+        assertEquals("shared", a.get(10, TimeUnit.SECONDS));
+        assertEquals("shared", b.get(10, TimeUnit.SECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    // nobody joined, so the body comes from the network as it is read, not from a copy
+    @Test
+    public void loneCallIsNotBuffered() throws IOException {
+        server.enqueue(new MockResponse().setChunkedBody("streamed", 3));
+
+        try (Response response = get("/search/movie?query=h")) {
+            assertEquals(-1, response.body().contentLength());
+            assertEquals("streamed", response.body().string());
+        }
+    }
+
+    private Response get(String path) throws IOException {
+        return client.newCall(request(path)).execute();
+    }
+
+    // own thread, so both calls are in flight together
+    private CompletableFuture<String> async(String path) {
+        CompletableFuture<String> body = new CompletableFuture<>();
+        new Thread(() -> {
+            try (Response response = get(path)) {
+                body.complete(response.body().string());
+            } catch (IOException e) {
+                body.completeExceptionally(e);
+            }
+        }).start();
+        return body;
+    }
+
+    private Request request(String path) {
+        return new Request.Builder().url(server.url(path)).build();
+    }
+}
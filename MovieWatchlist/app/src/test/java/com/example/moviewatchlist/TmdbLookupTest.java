@@ -0,0 +1,85 @@
+package com.example.moviewatchlist;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/*
+ TmdbLookup against a MockWebServer standing in 4 /search/movie.
+*/
+public class TmdbLookupTest {
+
+    private MockWebServer server;
+    private TmdbLookup lookup;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        OkHttpClient client = new OkHttpClient();
+        lookup = new TmdbLookup(title -> client.newCall(new Request.Builder()
+                .url(server.url("/search/movie").newBuilder().addQueryParameter("query", title).build())
+                .build()), 1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    static String results(String... idsAndTitles) {
+        StringBuilder json = new StringBuilder("{\"page\":1,\"total_pages\":1,\"results\":[");
+        for (int i = 0; i < idsAndTitles.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(idsAndTitles[i])
+                    .append(",\"title\":\"").append(idsAndTitles[i + 1]).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    @Test
+    public void exactTitleWinsOverFirstResult() throws Exception {
+        server.enqueue(new MockResponse().setBody(results("1", "Alien Resurrection", "348", "Alien")));
+
+        assertEquals("348", lookup.find("alien").getTmdbId());
+    }
+
+    @Test
+    public void missIsCached() throws Exception {
+        server.enqueue(new MockResponse().setBody(results()));
+
+        assertNull(lookup.find("No Such Movie"));
+        assertNull(lookup.find("no such movie "));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    // a 429 / 5xx is not "not found", it throws and the next call asks again
+    @Test
+    public void failedSearchThrowsAndIsNotCached() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(429));
+        server.enqueue(new MockResponse().setBody(results("550", "Fight Club")));
+
+        boolean failed = false;
+        try {
+            lookup.find("Fight Club");
+        } catch (IOException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        assertEquals("550", lookup.find("Fight Club").getTmdbId());
+        assertEquals(2, server.getRequestCount());
+    }
+}
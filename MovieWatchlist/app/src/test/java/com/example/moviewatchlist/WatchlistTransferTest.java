@@ -0,0 +1,141 @@
+package com.example.moviewatchlist;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+
+/*
+ Import / export against FakeWatchlistStore, titles are looked up on a
+ MockWebServer that knows "Alien" (348) and "Heat" (949) and fails 4 "Down".
+*/
+public class WatchlistTransferTest {
+
+    private MockWebServer server;
+    private FakeWatchlistStore store;
+    private WatchlistTransfer transfer;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String query = request.getRequestUrl().queryParameter("query");
+                switch (query) {
+                    case "Alien":
+                        return new MockResponse().setBody(TmdbLookupTest.results("348", "Alien"));
+                    case "Heat":
+                        return new MockResponse().setBody(TmdbLookupTest.results("949", "Heat"));
+                    case "Down":
+                        return new MockResponse().setResponseCode(503);
+                    default:
+                        return new MockResponse().setBody(TmdbLookupTest.results());
+                }
+            }
+        });
+        server.start();
+
+        OkHttpClient client = new OkHttpClient();
+        TmdbLookup lookup = new TmdbLookup(title -> client.newCall(new Request.Builder()
+                .url(server.url("/search/movie").newBuilder().addQueryParameter("query", title).build())
+                .build()), 1000);
+        store = new FakeWatchlistStore();
+        transfer = new WatchlistTransfer(store, lookup);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    // the scale is the file's: 4/10 used to stay 4 stars while 6/10 became 3
+    @Test
+    public void imdbRatingsAreHalvedWhateverTheValue() throws Exception {
+        String csv = "Const,Your Rating,Title\n"
+                + "tt0078748,4,Alien\n"
+                + "tt0113277,6,Heat\n";
+
+        transfer.importFrom(new StringReader(csv), WatchlistFormat.CSV, null);
+
+        assertEquals(2, store.rating("348"));
+        assertEquals(3, store.rating("949"));
+    }
+
+    @Test
+    public void fivePointRatingsAreKept() throws Exception {
+        String csv = "Name,Rating\nAlien,4\n";
+
+        transfer.importFrom(new StringReader(csv), WatchlistFormat.CSV, null);
+
+        assertEquals(4, store.rating("348"));
+    }
+
+    @Test
+    public void failedLookupIsSkippedAndTheImportGoesOn() throws Exception {
+        String csv = "title\nAlien\nDown\nNowhere\nHeat\n";
+
+        WatchlistTransfer.Result result = transfer.importFrom(new StringReader(csv), WatchlistFormat.CSV, null);
+
+        assertEquals(4, result.rowsRead);
+        assertEquals(2, result.imported);
+        assertEquals(1, result.skipped);
+        assertEquals(1, result.failed);
+    }
+
+    @Test
+    public void reimportKeepsDateAddedAndRating() throws Exception {
+        store.put("348", "Alien", 5);
+        Object addedAt = store.docs.get("348").get("addedAt");
+
+        transfer.importFrom(new StringReader("title\nAlien\n"), WatchlistFormat.CSV, null);
+
+        assertEquals(5, store.rating("348"));
+        assertEquals(addedAt, store.docs.get("348").get("addedAt"));
+    }
+
+    @Test
+    public void reimportWithARatingReplacesIt() throws Exception {
+        store.put("348", "Alien", 5);
+
+        transfer.importFrom(new StringReader("title,rating\nAlien,2\n"), WatchlistFormat.CSV, null);
+
+        assertEquals(2, store.rating("348"));
+    }
+
+    @Test
+    public void exportThenImportRoundTripsInBatches() throws Exception {
+        int rows = WatchlistTransfer.BATCH_SIZE * 2 + 10;
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            ndjson.append("{\"tmdbId\":\"").append(i).append("\",\"title\":\"Movie ").append(i)
+                    .append("\",\"rating\":").append(i % 6).append("}\n");
+        }
+
+        WatchlistTransfer.Result result = transfer.importFrom(
+                new StringReader(ndjson.toString()), WatchlistFormat.NDJSON, null);
+        assertEquals(rows, result.imported);
+        assertEquals(3, store.batchSizes.size());
+        assertEquals(0, server.getRequestCount()); // rows with an id are not looked up
+
+        StringWriter out = new StringWriter();
+        assertEquals(rows, transfer.exportTo(out, WatchlistFormat.CSV));
+
+        FakeWatchlistStore copy = new FakeWatchlistStore();
+        new WatchlistTransfer(copy, null).importFrom(new StringReader(out.toString()), WatchlistFormat.CSV, null);
+        assertEquals(store.docs.keySet(), copy.docs.keySet());
+        assertEquals(store.rating("7"), copy.rating("7"));
+    }
+}
@@ -0,0 +1,60 @@
+import com.android.build.api.dsl.ManagedVirtualDevice
+
+/*
+ Baseline Profile generator + macrobenchmarks 4 :app.
+
+   ./gradlew :app:generateBaselineProfile
+     runs BaselineProfileGenerator on the pixel6Api34 emulator and
+     puts the profile in app/src/release/generated/baselineProfiles
+
+   ./gradlew :baselineprofile:connectedBenchmarkReleaseAndroidTest
+     runs the startup / scroll benchmarks on a connected device or emulator
+     against the R8 release build
+
+ the journeys sign in when they land on the login screen, pass a test account:
+   -Pandroid.testInstrumentationRunnerArguments.email=...
+   -Pandroid.testInstrumentationRunnerArguments.password=...
+*/
+plugins {
+    id("com.android.test")
+    id("androidx.baselineprofile")
+}
+
+android {
+    namespace = "com.example.moviewatchlist.baselineprofile"
+    compileSdk = 36
+
+    defaultConfig {
+        minSdk = 28
+        targetSdk = 36
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    targetProjectPath = ":app"
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+
+    testOptions.managedDevices.allDevices {
+        create<ManagedVirtualDevice>("pixel6Api34") {
+            device = "Pixel 6"
+            apiLevel = 34
+            systemImageSource = "aosp"
+        }
+    }
+}
+
+baselineProfile {
+    managedDevices += "pixel6Api34"
+    useConnectedDevices = false
+}
+
+dependencies {
+    implementation("androidx.test.ext:junit:1.3.0")
+    implementation("androidx.test:runner:1.7.0")
+    implementation("androidx.test.uiautomator:uiautomator:2.3.0")
+    implementation("androidx.benchmark:benchmark-macro-junit4:1.4.0")
+}
@@ -0,0 +1,44 @@
+package com.example.moviewatchlist.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/*
+ Records the classes and methods used on the main journey,
+ they get AOT compiled at install time instead of running interpreted / jit.
+   ./gradlew :app:generateBaselineProfile
+*/
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(Journeys.PACKAGE, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+
+            Journeys.signInIfNeeded(scope);
+            Journeys.search(scope, "star");
+            Journeys.fling(scope, Journeys.RESULTS_LIST);
+
+            Journeys.openWatchlist(scope);
+            Journeys.fling(scope, Journeys.WATCHLIST_LIST);
+            scope.getDevice().pressBack();
+
+            Journeys.openTop10(scope);
+            Journeys.fling(scope, Journeys.TOP10_LIST);
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.moviewatchlist.baselineprofile;
+
+import android.os.Bundle;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.util.regex.Pattern;
+
+/*
+ User journeys shared by the profile generator and the benchmarks:
+ login -> search -> watchlist -> Top 10.
+ everything is found by view id, like a user would tap it.
+*/
+final class Journeys {
+
+    static final String PACKAGE = "com.example.moviewatchlist";
+
+    static final String RESULTS_LIST = "resultsList";
+    static final String WATCHLIST_LIST = "watchlistRecycler";
+    static final String TOP10_LIST = "top10Recycler";
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    private Journeys() { }
+
+    /*
+     Waits 4 login or search, signs in with the email / password
+     instrumentation args if the login screen is showing.
+    */
+    static void signInIfNeeded(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        device.wait(Until.hasObject(By.res(Pattern.compile(PACKAGE + ":id/(emailField|searchField)"))), TIMEOUT_MS);
+
+        if (!device.hasObject(By.res(PACKAGE, "emailField"))) {
+            return; // already signed in
+        }
+
+        Bundle args = InstrumentationRegistry.getArguments();
+        String email = args.getString("email");
+        String password = args.getString("password");
+        if (email == null || password == null) {
+            throw new IllegalStateException("Login screen shown, pass the email and password instrumentation args");
+        }
+
+        device.findObject(By.res(PACKAGE, "emailField")).setText(email);
+        device.findObject(By.res(PACKAGE, "passwordField")).setText(password);
+        device.findObject(By.res(PACKAGE, "loginButton")).click();
+        waitFor(device, "searchField");
+    }
+
+    /*
+     Searches and waits 4 the first row.
+    */
+    static void search(MacrobenchmarkScope scope, String query) {
+        UiDevice device = scope.getDevice();
+        device.findObject(By.res(PACKAGE, "searchField")).setText(query);
+        device.findObject(By.res(PACKAGE, "searchButton")).click();
+        device.wait(Until.hasObject(By.res(PACKAGE, "movieTitle")), TIMEOUT_MS);
+    }
+
+    static void openWatchlist(MacrobenchmarkScope scope) {
+        open(scope.getDevice(), "watchlistButton", WATCHLIST_LIST);
+    }
+
+    static void openTop10(MacrobenchmarkScope scope) {
+        open(scope.getDevice(), "top10Button", TOP10_LIST);
+    }
+
+    /*
+     Flings the list down and back up.
+    */
+    static void fling(MacrobenchmarkScope scope, String listId) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = waitFor(device, listId);
+
+        // keep clear of the system gesture areas
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+
+        list.fling(Direction.DOWN);
+        device.waitForIdle();
+        list.fling(Direction.UP);
+        device.waitForIdle();
+    }
+
+    private static void open(UiDevice device, String buttonId, String listId) {
+        waitFor(device, buttonId).click();
+        waitFor(device, listId);
+    }
+
+    private static UiObject2 waitFor(UiDevice device, String id) {
+        UiObject2 view = device.wait(Until.findObject(By.res(PACKAGE, id)), TIMEOUT_MS);
+        if (view == null) {
+            throw new IllegalStateException("View not found: " + id);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.moviewatchlist.baselineprofile;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import kotlin.Unit;
+
+/*
+ Frame timing while flinging each list, release build with the Baseline Profile.
+ the screen is opened in setup, only the flings are measured.
+*/
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ScrollBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void searchResults() {
+        measureFling(Journeys.RESULTS_LIST, scope -> Journeys.search(scope, "star"));
+    }
+
+    @Test
+    public void watchlist() {
+        measureFling(Journeys.WATCHLIST_LIST, Journeys::openWatchlist);
+    }
+
+    @Test
+    public void top10() {
+        measureFling(Journeys.TOP10_LIST, Journeys::openTop10);
+    }
+
+    private void measureFling(String listId, Consumer<MacrobenchmarkScope> openScreen) {
+        rule.measureRepeated(
+                Journeys.PACKAGE,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                null,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    Journeys.signInIfNeeded(scope);
+                    openScreen.accept(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.fling(scope, listId);
+                    return Unit.INSTANCE;
+                });
+    }
+}
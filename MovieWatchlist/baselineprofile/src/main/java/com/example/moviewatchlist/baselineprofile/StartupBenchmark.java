@@ -0,0 +1,69 @@
+package com.example.moviewatchlist.baselineprofile;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/*
+ Cold and warm startup of the release build,
+ without AOT (None) and with the Baseline Profile (Partial).
+ the gap between the two is what the profile buys.
+*/
+@RunWith(Parameterized.class)
+@LargeTest
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{
+                {"cold-none", StartupMode.COLD, new CompilationMode.None()},
+                {"cold-baselineProfile", StartupMode.COLD, new CompilationMode.Partial()},
+                {"warm-none", StartupMode.WARM, new CompilationMode.None()},
+                {"warm-baselineProfile", StartupMode.WARM, new CompilationMode.Partial()},
+        });
+    }
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    private final StartupMode startupMode;
+    private final CompilationMode compilationMode;
+
+    public StartupBenchmark(String name, StartupMode startupMode, CompilationMode compilationMode) {
+        this.startupMode = startupMode;
+        this.compilationMode = compilationMode;
+    }
+
+    @Test
+    public void startup() {
+        rule.measureRepeated(
+                Journeys.PACKAGE,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ JMH benchmarks 4 the plain java parts of the app (no android framework, no firebase).
+ the app sources (and the jobs' plain java ones) are compiled in here
+ directly, so the numbers are the app's code.
+
+   ./gradlew :benchmark:jmh
+
+ results go to build/results/jmh/results.json, keep that file per release
+ to compare (e.g. with jmh.morethan.io or any json diff).
+*/
+plugins {
+    id("java")
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            srcDir("../jobs/src/main/java")
+            include(
+                "com/example/moviewatchlist/Movie.java",
+                "com/example/moviewatchlist/MovieDiff.java",
+                "com/example/moviewatchlist/MovieDiffCallback.java",
+                "com/example/moviewatchlist/ShardedRatingCounter.java",
+                "com/example/moviewatchlist/RatingTotals.java",
+                "com/example/moviewatchlist/TmdbMovieParser.java",
+                "com/example/moviewatchlist/MovieDetails.java",
+                "com/example/moviewatchlist/TmdbSearchPage.java",
+                "com/example/moviewatchlist/RankingEngine.java",
+                "com/example/moviewatchlist/LatencyHistogram.java",
+                "com/example/moviewatchlist/TitleIndex.java",
+                "com/example/moviewatchlist/ItemSimilarityIndex.java"
+            )
+        }
+    }
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+// recyclerview only ships as an aar, DiffUtil in its classes.jar is plain java
+val recyclerviewAar by configurations.creating {
+    isTransitive = false
+}
+
+val recyclerviewClasses by tasks.registering(Copy::class) {
+    from({ zipTree(recyclerviewAar.singleFile) }) {
+        include("classes.jar")
+    }
+    into(layout.buildDirectory.dir("recyclerview"))
+}
+
+dependencies {
+    // the app's version, see app/build.gradle.kts
+    recyclerviewAar("androidx.recyclerview:recyclerview:1.4.0@aar")
+    implementation(files(layout.buildDirectory.file("recyclerview/classes.jar")).builtBy(recyclerviewClasses))
+    compileOnly("androidx.annotation:annotation:1.3.0")
+    implementation("com.google.code.gson:gson:2.10.1")
+    // android's own org.json (the org.json artifact won't getString a number id), 4 BaselineMovieParser
+    jmh("com.vaadin.external.google:android-json:0.0.20131108.vaadin1")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // gc.alloc.rate.norm (bytes per op) next to the times, e.g. streaming vs org.json in TmdbParseBenchmark
+    profilers.add("gc")
+    // ItemSimilarityBenchmark holds two indexes of 1M ratings, RatingAggregationBenchmark 1M movies
+    jvmArgs.set(listOf("-Xmx2g"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
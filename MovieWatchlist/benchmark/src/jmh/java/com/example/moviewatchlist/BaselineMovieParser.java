@@ -0,0 +1,42 @@
+package com.example.moviewatchlist;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ The search parsing from before TmdbMovieParser (MainActivity.parseMovies
+ in the first version), only the toast and adapter calls taken out:
+ the whole body as a String, then an org.json tree, then the movies.
+ org.json is android's copy here too (android-json), same code as on the phone.
+*/
+final class BaselineMovieParser {
+
+    private BaselineMovieParser() { }
+
+    static List<Movie> parseMovies(String json) throws JSONException {
+        List<Movie> movieResults = new ArrayList<>();
+
+        JSONObject root = new JSONObject(json);
+        JSONArray results = root.getJSONArray("results");
+
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject obj = results.getJSONObject(i);
+
+            Movie movie = new Movie();
+            movie.setTitle(obj.getString("title"));
+            movie.setTmdbId(obj.getString("id"));
+
+            movie.setPosterUrl(obj.isNull("poster_path") ? null :
+                    "https://image.tmdb.org/t/p/w500" + obj.getString("poster_path"));
+
+            movie.setRating(0);
+
+            movieResults.add(movie);
+        }
+        return movieResults;
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.moviewatchlist;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ TMDB shaped data 4 the benchmarks, made up with fixed seeds (every run
+ measures the same input) or read from src/jmh/resources.
+*/
+final class Fixtures {
+
+    private Fixtures() { }
+
+    /*
+     A file from src/jmh/resources as a String, e.g. "tmdb/search-star.json".
+    */
+    static String resource(String path) throws IOException {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new FileNotFoundException(path);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /*
+     A search response with the results of json repeated until it is at
+     least minBytes, like many pages in one body.
+    */
+    static String repeatedResults(String json, int minBytes) {
+        JsonObject page = JsonParser.parseString(json).getAsJsonObject();
+        JsonArray results = page.getAsJsonArray("results");
+        JsonArray all = new JsonArray();
+        String body = json;
+        while (body.length() < minBytes) {
+            all.addAll(results);
+            page.add("results", all);
+            body = page.toString();
+        }
+        return body;
+    }
+
+    static Movie movie(int id, Random random) {
+        Movie m = new Movie();
+        m.setTmdbId(String.valueOf(id));
+        m.setTitle("Movie " + id);
+        m.setPosterUrl(TmdbMovieParser.POSTER_BASE_URL + "/p" + id + ".jpg");
+        m.setRating(1 + random.nextInt(5));
+        m.setAvgRating(1 + random.nextDouble() * 4);
+        return m;
+    }
+
+    private static final String[] WORDS = {
+            "the", "of", "night", "dark", "love", "last", "star", "war", "city", "king",
+            "return", "lost", "house", "dead", "man", "girl", "secret", "blue", "road", "fire",
+            "matrix", "empire", "ghost", "river", "summer", "winter", "shadow", "dream", "heart", "island",
+            "legend", "storm", "hunter", "escape", "black", "golden", "silent", "wild", "little", "american"};
+
+    /*
+     n movies with titles of 1-4 words from WORDS, numbered so they are unique
+     ("Dark River 2") like the sequels in TMDB.
+    */
+    static List<Movie> titled(int n, long seed) {
+        Random random = new Random(seed);
+        List<Movie> movies = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            StringBuilder title = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                title.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length()).append(' ');
+            }
+            title.append(i);
+
+            Movie m = movie(i, random);
+            m.setTitle(title.toString());
+            movies.add(m);
+        }
+        return movies;
+    }
+
+    static List<Movie> watchlist(int n, long seed) {
+        Random random = new Random(seed);
+        List<Movie> movies = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            movies.add(movie(i, random));
+        }
+        return movies;
+    }
+
+    /*
+     The same watchlist after a typical sync:
+     ~1% re-rated, ~1% removed, ~1% added at the end.
+    */
+    static List<Movie> edited(List<Movie> old, long seed) {
+        Random random = new Random(seed);
+        List<Movie> next = new ArrayList<>(old.size());
+        for (Movie m : old) {
+            int roll = random.nextInt(100);
+            if (roll == 0) {
+                continue; // removed
+            }
+            if (roll == 1) {
+                Movie copy = movie(Integer.parseInt(m.getTmdbId()), random);
+                copy.setRating(m.getRating() % 5 + 1);
+                next.add(copy);
+            } else {
+                next.add(m);
+            }
+        }
+        int added = Math.max(1, old.size() / 100);
+        for (int i = 0; i < added; i++) {
+            next.add(movie(old.size() + i, random));
+        }
+        return next;
+    }
+}
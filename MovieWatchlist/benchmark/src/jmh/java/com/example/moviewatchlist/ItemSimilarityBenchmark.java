@@ -0,0 +1,126 @@
+package com.example.moviewatchlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ "Because you liked X" (ItemSimilarityIndex) at 100k users x 50k movies:
+ build = every rating added one by one, the cost of a cold start
+ rerate = one user changes one rating (incremental, no recompute)
+ neighbors = the O(K) lookup of a movie whose list is up to date
+ rerateThenNeighbors = a change and the lookup that rebuilds its list
+ recommend = suggestions 4 one user from all of their ratings
+ 1-19 ratings per user (~1M), popular movies are picked more often,
+ so their rows are long like in real data.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemSimilarityBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int MOVIES = 50_000;
+
+    // lookups cycle over the most popular movies
+    private static final int HOT_MOVIES = 1000;
+
+    private String[] userIds;
+    private String[] movieIds;
+
+    // rating r is user ratingUser[r] giving ratingStars[r] to movie ratingMovie[r]
+    private int[] ratingUser;
+    private int[] ratingMovie;
+    private float[] ratingStars;
+
+    private ItemSimilarityIndex index;
+    private Random random;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random data = new Random(11);
+        userIds = new String[USERS];
+        for (int u = 0; u < USERS; u++) {
+            userIds[u] = "user" + u;
+        }
+        movieIds = new String[MOVIES];
+        for (int m = 0; m < MOVIES; m++) {
+            movieIds[m] = String.valueOf(m);
+        }
+
+        int[] users = new int[USERS * 20];
+        int[] movies = new int[USERS * 20];
+        float[] stars = new float[USERS * 20];
+        int n = 0;
+        for (int u = 0; u < USERS; u++) {
+            int count = 1 + data.nextInt(19);
+            for (int c = 0; c < count; c++) {
+                users[n] = u;
+                movies[n] = popular(data);
+                stars[n] = 1 + data.nextInt(5);
+                n++;
+            }
+        }
+        ratingUser = Arrays.copyOf(users, n);
+        ratingMovie = Arrays.copyOf(movies, n);
+        ratingStars = Arrays.copyOf(stars, n);
+
+        index = build();
+        random = new Random(12);
+    }
+
+    // low ids are picked much more often
+    private static int popular(Random random) {
+        double x = random.nextDouble();
+        return (int) (MOVIES * x * x);
+    }
+
+    private ItemSimilarityIndex build() {
+        ItemSimilarityIndex built = new ItemSimilarityIndex();
+        for (int r = 0; r < ratingUser.length; r++) {
+            built.setRating(userIds[ratingUser[r]], movieIds[ratingMovie[r]], ratingStars[r]);
+        }
+        return built;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ItemSimilarityIndex build1M() {
+        return build();
+    }
+
+    @Benchmark
+    public void rerate() {
+        int r = random.nextInt(ratingUser.length);
+        index.setRating(userIds[ratingUser[r]], movieIds[ratingMovie[r]], 1 + random.nextInt(5));
+    }
+
+    @Benchmark
+    public List<ItemSimilarityIndex.Neighbor> neighbors() {
+        next = (next + 1) % HOT_MOVIES;
+        return index.neighbors(movieIds[next]);
+    }
+
+    @Benchmark
+    public List<ItemSimilarityIndex.Neighbor> rerateThenNeighbors() {
+        int r = random.nextInt(ratingUser.length);
+        index.setRating(userIds[ratingUser[r]], movieIds[ratingMovie[r]], 1 + random.nextInt(5));
+        return index.neighbors(movieIds[ratingMovie[r]]);
+    }
+
+    @Benchmark
+    public List<ItemSimilarityIndex.Neighbor> recommend() {
+        return index.recommend(userIds[random.nextInt(USERS)], 10);
+    }
+}
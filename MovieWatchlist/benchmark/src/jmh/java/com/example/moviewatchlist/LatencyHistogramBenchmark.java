@@ -0,0 +1,31 @@
+package com.example.moviewatchlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ Cost of one Metrics record on the hot paths, should stay in the tens of ns.
+ run with -prof gc to check it allocates nothing.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LatencyHistogramBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram("bench");
+
+    private long value = 1;
+
+    @Benchmark
+    public void record() {
+        // walks through all bucket sizes
+        value = value * 31 % 100_000_000L + 1;
+        histogram.recordMicros(value);
+    }
+}
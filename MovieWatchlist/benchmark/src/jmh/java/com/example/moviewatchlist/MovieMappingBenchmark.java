@@ -0,0 +1,51 @@
+package com.example.moviewatchlist;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ One Movie to the shapes it is written in:
+ toMap (firestore writes) and json (gson, both ways).
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MovieMappingBenchmark {
+
+    private final Gson gson = new Gson();
+
+    private Movie movie;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        movie = Fixtures.movie(550, new Random(1));
+        json = gson.toJson(movie);
+    }
+
+    @Benchmark
+    public Map<String, Object> toMap() {
+        return movie.toMap();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return gson.toJson(movie);
+    }
+
+    @Benchmark
+    public Movie fromJson() {
+        return gson.fromJson(json, Movie.class);
+    }
+}
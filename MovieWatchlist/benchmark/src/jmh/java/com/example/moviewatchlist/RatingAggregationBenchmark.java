@@ -0,0 +1,172 @@
+package com.example.moviewatchlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ The rating math of the app and the jobs, the real classes:
+ rollUp = ShardedRatingCounter.rollUp of one movie on an in-memory store
+   (the transaction reads the movie and its shards, merges the totals)
+ reaggregate = RatingTotals over every rating, prior and scores (ReaggregateJob)
+ scores = RatingTotals over every movie, prior and scores (ScoresJob),
+   up to the 1M movies of a full catalogue
+ no firestore, so this is the cpu part only.
+*/
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RatingAggregationBenchmark {
+
+    /*
+     ShardedRatingCounter.Store in a map, no latency, no conflicts.
+    */
+    static final class MemoryStore implements ShardedRatingCounter.Store, ShardedRatingCounter.Tx {
+        final Map<String, Map<String, Object>> docs = new HashMap<>();
+
+        @Override
+        public Map<String, Object> get(String path) {
+            return docs.get(path);
+        }
+
+        @Override
+        public List<Map<String, Object>> list(String collectionPath) {
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Object>> e : docs.entrySet()) {
+                String path = e.getKey();
+                if (path.startsWith(collectionPath + "/") && path.indexOf('/', collectionPath.length() + 1) < 0) {
+                    result.add(e.getValue());
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public <T> T inTransaction(ShardedRatingCounter.Work<T> work) throws IOException {
+            return work.run(this);
+        }
+
+        @Override
+        public void set(String path, Map<String, Object> fields) {
+            docs.put(path, new HashMap<>(fields));
+        }
+
+        @Override
+        public void merge(String path, Map<String, Object> fields) {
+            docs.computeIfAbsent(path, p -> new HashMap<>()).putAll(fields);
+        }
+
+        @Override
+        public void add(String path, Map<String, Number> deltas) {
+            Map<String, Object> doc = docs.computeIfAbsent(path, p -> new HashMap<>());
+            for (Map.Entry<String, Number> d : deltas.entrySet()) {
+                doc.put(d.getKey(), ShardedRatingCounter.number(doc.get(d.getKey())) + d.getValue().doubleValue());
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shards {
+        final MemoryStore store = new MemoryStore();
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(7);
+            for (int n = 0; n < ShardedRatingCounter.NUM_SHARDS; n++) {
+                long count = 1 + random.nextInt(1000);
+                Map<String, Number> shard = new HashMap<>();
+                shard.put(ShardedRatingCounter.FIELD_SUM, count * (1 + random.nextDouble() * 4));
+                shard.put(ShardedRatingCounter.FIELD_COUNT, count);
+                store.add(ShardedRatingCounter.shardRef("550", n), shard);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Ratings {
+        @Param({"1000", "100000", "1000000"})
+        public int ratings;
+
+        String[] movie;
+        double[] stars;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(7);
+            int movies = Math.max(1, ratings / 10); // ~10 ratings per movie
+            movie = new String[ratings];
+            stars = new double[ratings];
+            for (int i = 0; i < ratings; i++) {
+                movie[i] = String.valueOf(random.nextInt(movies));
+                stars[i] = 1 + random.nextInt(5);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Movies {
+        @Param({"1000", "100000", "1000000"})
+        public int movies;
+
+        String[] ids;
+        double[] avg;
+        long[] total;
+
+        @Setup
+        public void setUp() {
+            Random random = new Random(7);
+            ids = new String[movies];
+            avg = new double[movies];
+            total = new long[movies];
+            for (int i = 0; i < movies; i++) {
+                ids[i] = String.valueOf(i);
+                total[i] = random.nextInt(200);
+                avg[i] = total[i] > 0 ? 1 + random.nextDouble() * 4 : 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public ShardedRatingCounter.Totals rollUp(Shards shards) throws IOException {
+        return new ShardedRatingCounter(shards.store).rollUp("550", null);
+    }
+
+    @Benchmark
+    public double[] reaggregate(Ratings in) {
+        RatingTotals totals = new RatingTotals();
+        for (int i = 0; i < in.movie.length; i++) {
+            totals.add(in.movie[i], in.stars[i], 1);
+        }
+        return scores(totals);
+    }
+
+    @Benchmark
+    public double[] scores(Movies in) {
+        RatingTotals totals = new RatingTotals();
+        for (int i = 0; i < in.ids.length; i++) {
+            totals.add(in.ids[i], in.avg[i] * in.total[i], in.total[i]);
+        }
+        return scores(totals);
+    }
+
+    private static double[] scores(RatingTotals totals) {
+        totals.storePrior();
+        double[] scores = new double[totals.size()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = totals.score(i);
+        }
+        return scores;
+    }
+}
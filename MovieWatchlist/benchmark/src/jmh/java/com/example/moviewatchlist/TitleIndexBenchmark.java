@@ -0,0 +1,69 @@
+package com.example.moviewatchlist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Local title search (TitleIndex): building it from the saved movies
+ and one query per key stroke. a query runs on the main thread, so at
+ 100k titles it has to stay well under a frame (16 ms, less on a phone).
+ the titles use only 40 words, so the posting lists are much longer
+ than with real titles, read the numbers as the worst case.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TitleIndexBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<Movie> movies;
+    private TitleIndex index;
+
+    @Setup
+    public void setUp() {
+        movies = Fixtures.titled(size, 1);
+        index = new TitleIndex();
+        index.addAll(movies);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public TitleIndex build() {
+        TitleIndex built = new TitleIndex();
+        built.addAll(movies);
+        return built;
+    }
+
+    // as typed, few letters match a lot of titles
+    @Benchmark
+    public List<Movie> shortPrefix() {
+        return index.search("da");
+    }
+
+    @Benchmark
+    public List<Movie> word() {
+        return index.search("shadow");
+    }
+
+    @Benchmark
+    public List<Movie> typo() {
+        return index.search("shaodw rivr");
+    }
+
+    // "the" is in about a fifth of the titles, the worst case 4 the posting lists
+    @Benchmark
+    public List<Movie> commonWords() {
+        return index.search("the night of the hunter");
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.moviewatchlist;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ TMDB search response -> movies.
+ streaming = TmdbMovieParser (what the app uses now),
+ baseline = the old org.json code (BaselineMovieParser).
+ the input is a /search/movie answer from src/jmh/resources/tmdb:
+ star = a full page of 20 with long overviews, amelie = a short page
+ with non-ascii titles and null posters, large = the star results
+ repeated to LARGE_BYTES in one body (a few hundred KB, where a whole
+ tree in memory costs most). allocations: gc.alloc.rate.norm in the
+ results, the gc profiler is on in build.gradle.kts.
+ to take them again (the key is tmdb_api_key in the app's strings.xml):
+   curl "https://api.themoviedb.org/3/search/movie?api_key=KEY&query=star" > search-star.json
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TmdbParseBenchmark {
+
+    static final int LARGE_BYTES = 300 * 1024;
+
+    @Param({"star", "amelie", "large"})
+    public String query;
+
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        json = "large".equals(query)
+                ? Fixtures.repeatedResults(Fixtures.resource("tmdb/search-star.json"), LARGE_BYTES)
+                : Fixtures.resource("tmdb/search-" + query + ".json");
+    }
+
+    @Benchmark
+    public TmdbSearchPage streaming() throws IOException {
+        return TmdbMovieParser.parseSearchPage(new StringReader(json));
+    }
+
+    @Benchmark
+    public List<Movie> baseline() throws JSONException {
+        return BaselineMovieParser.parseMovies(json);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.moviewatchlist;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Saved watchlist vs the first snapshot (~1% changed, removed and added),
+ through DiffUtil.calculateDiff with the app's MovieDiffCallback, like
+ ListAdapter's AsyncListDiffer runs it on every submitList.
+ moves = with move detection (what AsyncListDiffer does), noMoves = without.
+*/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WatchlistDiffBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int size;
+
+    private List<Movie> oldRows;
+    private List<Movie> newRows;
+    private final MovieDiffCallback items = new MovieDiffCallback();
+
+    @Setup
+    public void setUp() {
+        oldRows = Fixtures.watchlist(size, 1);
+        newRows = Fixtures.edited(oldRows, 2);
+    }
+
+    @Benchmark
+    public DiffUtil.DiffResult moves() {
+        return DiffUtil.calculateDiff(callback(), true);
+    }
+
+    @Benchmark
+    public DiffUtil.DiffResult noMoves() {
+        return DiffUtil.calculateDiff(callback(), false);
+    }
+
+    // the RecyclerView ids of the new rows (WatchlistAdapter.getItemId)
+    @Benchmark
+    public long stableIds() {
+        long sum = 0;
+        for (Movie m : newRows) {
+            sum += MovieDiff.stableId(m);
+        }
+        return sum;
+    }
+
+    // the list callback AsyncListDiffer puts around the adapter's ItemCallback
+    private DiffUtil.Callback callback() {
+        return new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldRows.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newRows.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return items.areItemsTheSame(oldRows.get(oldPosition), newRows.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return items.areContentsTheSame(oldRows.get(oldPosition), newRows.get(newPosition));
+            }
+        };
+    }
+}
@@ -1,6 +1,9 @@
 // Top-level build file where you can add configuration options common to all sub-projects/modules.
 plugins {
     id("com.android.application") version "8.12.0" apply false
+    id("com.android.test") version "8.12.0" apply false
     id("com.google.gms.google-services") version "4.4.2" apply false
+    id("me.champeau.jmh") version "0.7.3" apply false
+    id("androidx.baselineprofile") version "1.4.0" apply false
 }
 
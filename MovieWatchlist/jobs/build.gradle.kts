@@ -0,0 +1,60 @@
+/*
+ Server side jobs 4 what no phone should compute or write: roll-ups of
+ the rating shards into movies/{id}, the full re-aggregation of all
+ ratings, the shared ranking prior / score backfill, the
+ "because you liked" neighbours and the watchlist addedAt backfill.
+ runs with the firebase admin sdk.
+ the app's plain java classes are compiled in (like :benchmark), so the
+ jobs use the app's own counter and ranking code.
+
+   ./gradlew :jobs:run --args="rollup"
+
+ credentials come from GOOGLE_APPLICATION_CREDENTIALS (a service account json).
+ scheduled by .github/workflows/jobs.yml.
+*/
+plugins {
+    id("java")
+    id("application")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// the app sources the jobs share, kept apart so the include list only applies to them
+val app by sourceSets.creating {
+    java {
+        srcDir("../app/src/main/java")
+        include(
+            "com/example/moviewatchlist/ItemSimilarityIndex.java",
+            "com/example/moviewatchlist/Movie.java",
+            "com/example/moviewatchlist/RankingEngine.java",
+            "com/example/moviewatchlist/ShardedRatingCounter.java"
+        )
+    }
+}
+
+sourceSets {
+    main {
+        compileClasspath += app.output
+        runtimeClasspath += app.output
+    }
+}
+
+// the shared classes go in the jar too, 4 installDist
+tasks.jar {
+    from(app.output)
+}
+
+tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation("com.google.firebase:firebase-admin:9.4.3")
+}
+
+application {
+    mainClass.set("com.example.moviewatchlist.Jobs")
+}
@@ -0,0 +1,80 @@
+package com.example.moviewatchlist;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.io.IOException;
+import java.util.List;
+
+/*
+ Gives every watchlist doc an addedAt, so the "Date added" sort
+ (orderBy addedAt leaves out docs without it) shows all movies.
+ - one pass over the "watchlist" collection group, PAGE_SIZE docs at a time
+ - a doc without addedAt gets its updatedAt, or the time firestore
+   created it if it has none, in batches of up to 500 writes
+ every add sets addedAt, so this is only needed once 4 the docs from
+ before the field, run by hand (workflow_dispatch "added-at").
+ safe to run again, docs with addedAt are not written.
+*/
+class AddedAtJob {
+
+    static final int PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private static final String WATCHLIST = "watchlist";
+    private static final String FIELD_ADDED_AT = "addedAt";
+    private static final String FIELD_UPDATED_AT = "updatedAt";
+
+    private final Firestore db;
+
+    AddedAtJob(Firestore db) {
+        this.db = db;
+    }
+
+    /*
+     Returns the number of docs written.
+    */
+    int run() throws IOException {
+        Query query = db.collectionGroup(WATCHLIST)
+                .select(FIELD_ADDED_AT, FIELD_UPDATED_AT)
+                .orderBy(FieldPath.documentId())
+                .limit(PAGE_SIZE);
+
+        WriteBatch batch = db.batch();
+        int writes = 0;
+        int written = 0;
+
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(page.get()).getDocuments();
+            for (QueryDocumentSnapshot doc : docs) {
+                if (doc.get(FIELD_ADDED_AT) != null) {
+                    continue;
+                }
+                if (writes == MAX_BATCH_WRITES) {
+                    AdminRatingStore.await(batch.commit());
+                    batch = db.batch();
+                    writes = 0;
+                }
+                Timestamp updatedAt = doc.getTimestamp(FIELD_UPDATED_AT);
+                batch.update(doc.getReference(), FIELD_ADDED_AT, updatedAt != null ? updatedAt : doc.getCreateTime());
+                writes++;
+                written++;
+            }
+            if (docs.size() < PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        if (writes > 0) {
+            AdminRatingStore.await(batch.commit());
+        }
+        return written;
+    }
+}
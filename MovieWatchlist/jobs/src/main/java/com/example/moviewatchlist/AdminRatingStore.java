@@ -0,0 +1,110 @@
+package com.example.moviewatchlist;
+
+import com.google.api.core.ApiFuture;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.Transaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/*
+ ShardedRatingCounter.Store on the admin sdk, 4 the jobs.
+ the server locks what a transaction read, so the jobs and the
+ phones' rating transactions wait 4 each other instead of overwriting.
+*/
+class AdminRatingStore implements ShardedRatingCounter.Store {
+
+    private final Firestore db;
+
+    AdminRatingStore(Firestore db) {
+        this.db = db;
+    }
+
+    @Override
+    public Map<String, Object> get(String path) throws IOException {
+        DocumentSnapshot doc = await(db.document(path).get());
+        return doc.exists() ? doc.getData() : null;
+    }
+
+    @Override
+    public List<Map<String, Object>> list(String collectionPath) throws IOException {
+        List<Map<String, Object>> docs = new ArrayList<>();
+        for (QueryDocumentSnapshot doc : await(db.collection(collectionPath).get())) {
+            docs.add(doc.getData());
+        }
+        return docs;
+    }
+
+    @Override
+    public <T> T inTransaction(ShardedRatingCounter.Work<T> work) throws IOException {
+        return await(db.runTransaction(transaction -> work.run(new Tx(db, transaction))));
+    }
+
+    private static final class Tx implements ShardedRatingCounter.Tx {
+        private final Firestore db;
+        private final Transaction transaction;
+
+        Tx(Firestore db, Transaction transaction) {
+            this.db = db;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public Map<String, Object> get(String path) throws IOException {
+            DocumentSnapshot doc = await(transaction.get(db.document(path)));
+            return doc.exists() ? doc.getData() : null;
+        }
+
+        @Override
+        public void set(String path, Map<String, Object> fields) {
+            transaction.set(db.document(path), values(fields));
+        }
+
+        @Override
+        public void merge(String path, Map<String, Object> fields) {
+            transaction.set(db.document(path), values(fields), SetOptions.merge());
+        }
+
+        @Override
+        public void add(String path, Map<String, Number> deltas) {
+            Map<String, Object> fields = new HashMap<>();
+            for (Map.Entry<String, Number> e : deltas.entrySet()) {
+                Number by = e.getValue();
+                fields.put(e.getKey(), by instanceof Double || by instanceof Float
+                        ? FieldValue.increment(by.doubleValue())
+                        : FieldValue.increment(by.longValue()));
+            }
+            transaction.set(db.document(path), fields, SetOptions.merge());
+        }
+    }
+
+    // SERVER_TIME -> the firestore sentinel
+    private static Map<String, Object> values(Map<String, Object> fields) {
+        Map<String, Object> values = new HashMap<>(fields);
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            if (e.getValue() == ShardedRatingCounter.SERVER_TIME) {
+                e.setValue(FieldValue.serverTimestamp());
+            }
+        }
+        return values;
+    }
+
+    static <T> T await(ApiFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+}
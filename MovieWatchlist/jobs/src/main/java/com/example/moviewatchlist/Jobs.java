@@ -0,0 +1,80 @@
+package com.example.moviewatchlist;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.Firestore;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.cloud.FirestoreClient;
+
+import java.io.File;
+
+/*
+ Entry point of the server side jobs, one command per run:
+   rollup        rolls the rating shards of recently rated movies up into movies/{id}
+   reaggregate   rebuilds every movie's totals and shards from the rating docs
+   scores        stores the shared ranking prior and backfills every movie's score
+   neighbors     applies the watchlist changes to the movie similarities kept in a
+                 file (2nd arg, default neighbors.index), publishes what changed
+   added-at      gives watchlist docs from before addedAt one (once, by hand)
+ exits non zero on failure, so the scheduler shows it.
+*/
+public final class Jobs {
+
+    // stats/jobs, where the jobs keep how far they got
+    static final String STATE = "jobs";
+
+    private Jobs() { }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+
+        Firestore db = open();
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "rollup":
+                RollupJob rollup = new RollupJob(db);
+                int movies = rollup.run();
+                System.out.printf("rollup: %d movies, oldest rating waited %.1f min%n",
+                        movies, rollup.lagMillis() / 60000.0);
+                break;
+            case "reaggregate":
+                int rebuilt = new ReaggregateJob(db).run();
+                System.out.println("reaggregate: " + rebuilt + " movies");
+                break;
+            case "scores":
+                int scores = new ScoresJob(db).run();
+                System.out.println("scores: " + scores + " written, prior " + RankingEngine.getPriorMean());
+                break;
+            case "neighbors":
+                File index = new File(args.length > 1 ? args[1] : NeighborsJob.DEFAULT_FILE);
+                int published = new NeighborsJob(db, index).run();
+                System.out.println("neighbors: " + published + " movies");
+                break;
+            case "added-at":
+                int backfilled = new AddedAtJob(db).run();
+                System.out.println("added-at: " + backfilled + " docs");
+                break;
+            default:
+                usage();
+                return;
+        }
+        System.out.printf("%s done in %.1f s%n", args[0], (System.nanoTime() - start) / 1e9);
+        db.close();
+    }
+
+    private static Firestore open() throws Exception {
+        FirebaseOptions options = FirebaseOptions.builder()
+                .setCredentials(GoogleCredentials.getApplicationDefault())
+                .build();
+        FirebaseApp.initializeApp(options);
+        return FirestoreClient.getFirestore();
+    }
+
+    private static void usage() {
+        System.err.println("usage: jobs rollup | reaggregate | scores | neighbors [file] | added-at");
+        System.exit(2);
+    }
+}
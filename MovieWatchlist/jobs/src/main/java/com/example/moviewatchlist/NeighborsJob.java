@@ -0,0 +1,323 @@
+package com.example.moviewatchlist;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ "Because you liked X" 4 the phones: keeps an ItemSimilarityIndex of the
+ users' own ratings (users/{uid}/watchlist/{tmdbId}.rating, 1..5) and
+ publishes each movie's top K in neighbors/{tmdbId}.
+ - incremental: the index (with each user's ratings, titles / posters and
+   how far it got) is kept in a file between runs (the workflow caches it).
+   a run only reads the users whose watchlist changed since: their
+   summary docs by updatedAt (every watchlist write, deletes too, moves
+   it), then each of those watchlists once. a user's ratings are replaced
+   as a whole, so removed and un-rated movies go out of the index too
+ - no file (first run, or the cache expired): one pass over the rated
+   docs of the "watchlist" collection group, PAGE_SIZE at a time
+ - only the movies whose neighbours may have changed are written:
+   neighbors/{tmdbId} has the ids, titles, posters and scores of the
+   similar movies, no uids or ratings, so a phone reads one doc and learns
+   nothing about other users. a movie left without neighbours (no longer
+   rated) has its doc deleted
+ - a user keeps their newest MAX_RATINGS_PER_USER ratings
+ runs once a day.
+*/
+class NeighborsJob {
+
+    static final String NEIGHBORS = "neighbors";
+    static final String FIELD_IDS = "ids";
+    static final String FIELD_TITLES = "titles";
+    static final String FIELD_POSTERS = "posterUrls";
+    static final String FIELD_SCORES = "scores";
+    static final String FIELD_UPDATED_AT = "updatedAt";
+
+    static final String DEFAULT_FILE = "neighbors.index";
+
+    static final int PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_WRITES = 500;
+
+    // a full pass starts this much before its own clock, server times may be ahead
+    private static final long SKEW_MILLIS = 5 * 60 * 1000L;
+
+    private static final String WATCHLIST = "watchlist";
+    private static final String SUMMARY = "summary";
+    private static final String FIELD_RATING = "rating";
+
+    // one rated watchlist doc
+    private static final class Rated {
+        final float stars;
+        final Timestamp updatedAt;
+
+        Rated(float stars, Timestamp updatedAt) {
+            this.stars = stars;
+            this.updatedAt = updatedAt;
+        }
+    }
+
+    private final Firestore db;
+    private final File file;
+
+    private ItemSimilarityIndex index;
+
+    // tmdbId -> {title, posterUrl}, from the last watchlist doc read
+    private final Map<String, String[]> info = new HashMap<>();
+
+    // summaries changed after this are not in the index yet
+    private Timestamp since;
+
+    NeighborsJob(Firestore db, File file) {
+        this.db = db;
+        this.file = file;
+    }
+
+    /*
+     Returns the number of neighbors docs written or deleted.
+    */
+    int run() throws IOException {
+        load();
+        Timestamp next;
+        if (index == null) {
+            index = new ItemSimilarityIndex();
+            next = Timestamp.ofTimeMicroseconds((System.currentTimeMillis() - SKEW_MILLIS) * 1000);
+            readAll();
+        } else {
+            next = readChanged();
+        }
+
+        int written = publish(index.takeChanged());
+        since = next;
+        save();
+        return written;
+    }
+
+    /*
+     Every rated watchlist doc, grouped by user.
+    */
+    private void readAll() throws IOException {
+        // needs the collection group index on watchlist.rating (firestore.indexes.json)
+        Query query = db.collectionGroup(WATCHLIST)
+                .whereGreaterThan(FIELD_RATING, 0)
+                .orderBy(FIELD_RATING)
+                .orderBy(FieldPath.documentId())
+                .select(FIELD_RATING, FIELD_UPDATED_AT, "title", "posterUrl")
+                .limit(PAGE_SIZE);
+
+        Map<String, Map<String, Rated>> byUser = new HashMap<>();
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(page.get()).getDocuments();
+            for (QueryDocumentSnapshot doc : docs) {
+                DocumentReference user = doc.getReference().getParent().getParent();
+                if (user != null) {
+                    read(doc, byUser.computeIfAbsent(user.getId(), id -> new HashMap<>()));
+                }
+            }
+            if (docs.size() < PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        for (Map.Entry<String, Map<String, Rated>> e : byUser.entrySet()) {
+            index.setRatings(e.getKey(), newest(e.getValue()));
+        }
+    }
+
+    /*
+     The watchlists of the users whose summary changed after since,
+     returns the newest summary time read (since if none).
+    */
+    private Timestamp readChanged() throws IOException {
+        // needs the collection group index on summary.updatedAt (firestore.indexes.json)
+        Query query = db.collectionGroup(SUMMARY)
+                .whereGreaterThan(FIELD_UPDATED_AT, since)
+                .orderBy(FIELD_UPDATED_AT)
+                .select(FIELD_UPDATED_AT)
+                .limit(PAGE_SIZE);
+
+        Set<String> users = new LinkedHashSet<>();
+        Timestamp newest = since;
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(page.get()).getDocuments();
+            for (QueryDocumentSnapshot doc : docs) {
+                DocumentReference user = doc.getReference().getParent().getParent();
+                if (user != null && WATCHLIST.equals(doc.getId())) {
+                    users.add(user.getId());
+                }
+                newest = doc.getTimestamp(FIELD_UPDATED_AT);
+            }
+            if (docs.size() < PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        for (String userId : users) {
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(db.collection("users").document(userId)
+                    .collection(WATCHLIST)
+                    .select(FIELD_RATING, FIELD_UPDATED_AT, "title", "posterUrl")
+                    .get()).getDocuments();
+            Map<String, Rated> ratings = new HashMap<>();
+            for (QueryDocumentSnapshot doc : docs) {
+                read(doc, ratings);
+            }
+            index.setRatings(userId, newest(ratings));
+        }
+        return newest;
+    }
+
+    private void read(DocumentSnapshot doc, Map<String, Rated> ratings) {
+        Long rating = doc.getLong(FIELD_RATING);
+        if (rating == null || rating <= 0) {
+            return;
+        }
+        ratings.put(doc.getId(), new Rated(rating, doc.getTimestamp(FIELD_UPDATED_AT)));
+        info.put(doc.getId(), new String[]{doc.getString("title"), doc.getString("posterUrl")});
+    }
+
+    // the newest MAX_RATINGS_PER_USER, oldest first (no updatedAt = oldest)
+    private static LinkedHashMap<String, Float> newest(Map<String, Rated> ratings) {
+        List<Map.Entry<String, Rated>> sorted = new ArrayList<>(ratings.entrySet());
+        sorted.sort((a, b) -> {
+            Timestamp x = a.getValue().updatedAt;
+            Timestamp y = b.getValue().updatedAt;
+            if (x == null || y == null) {
+                return x == null ? (y == null ? 0 : -1) : 1;
+            }
+            return x.compareTo(y);
+        });
+
+        int from = Math.max(0, sorted.size() - ItemSimilarityIndex.MAX_RATINGS_PER_USER);
+        LinkedHashMap<String, Float> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Rated> e : sorted.subList(from, sorted.size())) {
+            result.put(e.getKey(), e.getValue().stars);
+        }
+        return result;
+    }
+
+    private int publish(List<String> changed) throws IOException {
+        WriteBatch batch = db.batch();
+        int writes = 0;
+
+        for (String tmdbId : changed) {
+            if (writes == MAX_BATCH_WRITES) {
+                AdminRatingStore.await(batch.commit());
+                batch = db.batch();
+                writes = 0;
+            }
+            List<ItemSimilarityIndex.Neighbor> neighbors = index.neighbors(tmdbId);
+            DocumentReference ref = db.collection(NEIGHBORS).document(tmdbId);
+            if (neighbors.isEmpty()) {
+                batch.delete(ref);
+            } else {
+                batch.set(ref, toMap(neighbors));
+            }
+            writes++;
+        }
+        if (writes > 0) {
+            AdminRatingStore.await(batch.commit());
+        }
+        return changed.size();
+    }
+
+    private Map<String, Object> toMap(List<ItemSimilarityIndex.Neighbor> neighbors) {
+        List<String> ids = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<String> posters = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        for (ItemSimilarityIndex.Neighbor n : neighbors) {
+            String[] movie = info.getOrDefault(n.tmdbId, new String[2]);
+            ids.add(n.tmdbId);
+            titles.add(movie[0]);
+            posters.add(movie[1]);
+            scores.add((double) n.score);
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_IDS, ids);
+        fields.put(FIELD_TITLES, titles);
+        fields.put(FIELD_POSTERS, posters);
+        fields.put(FIELD_SCORES, scores);
+        fields.put(FIELD_UPDATED_AT, FieldValue.serverTimestamp());
+        return fields;
+    }
+
+    /*
+     The file from the last run, none (or one that can't be read) leaves
+     index null 4 a full pass.
+    */
+    private void load() {
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            since = Timestamp.ofTimeSecondsAndNanos(in.readLong(), in.readInt());
+            int movies = in.readInt();
+            for (int i = 0; i < movies; i++) {
+                info.put(in.readUTF(), new String[]{readNullable(in), readNullable(in)});
+            }
+            index = ItemSimilarityIndex.readFrom(in);
+        } catch (IOException e) {
+            System.err.println("neighbors: " + file + " unreadable, full pass: " + e);
+            info.clear();
+            index = null;
+        }
+    }
+
+    // written next to it and moved over, a run that dies halfway keeps the old one
+    private void save() throws IOException {
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeLong(since.getSeconds());
+            out.writeInt(since.getNanos());
+            out.writeInt(info.size());
+            for (Map.Entry<String, String[]> e : info.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeNullable(out, e.getValue()[0]);
+                writeNullable(out, e.getValue()[1]);
+            }
+            index.writeTo(out);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.moviewatchlist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Sum and count per movie over a whole pass (every rating doc in
+ ReaggregateJob, every movie doc in ScoresJob), the mean over all of them
+ is the ranking prior. primitive arrays grown by doubling, one map
+ entry per movie. plain java (see RatingAggregationBenchmark).
+*/
+class RatingTotals {
+
+    // movie i in add order
+    final List<String> ids = new ArrayList<>();
+    double[] sums = new double[16];
+    long[] counts = new long[16];
+
+    private final Map<String, Integer> index = new HashMap<>();
+    private double allSum;
+    private long allCount;
+
+    /*
+     Adds sum / count to the movie, returns its index.
+    */
+    int add(String movieId, double sum, long count) {
+        Integer i = index.get(movieId);
+        if (i == null) {
+            i = ids.size();
+            if (i == sums.length) {
+                sums = Arrays.copyOf(sums, i * 2);
+                counts = Arrays.copyOf(counts, i * 2);
+            }
+            ids.add(movieId);
+            index.put(movieId, i);
+        }
+        sums[i] += sum;
+        counts[i] += count;
+        allSum += sum;
+        allCount += count;
+        return i;
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    long allCount() {
+        return allCount;
+    }
+
+    /*
+     Stores the mean over all ratings as RankingEngine's prior (kept if
+     there are none), the scores after this use it. returns the prior.
+    */
+    double storePrior() {
+        if (allCount > 0) {
+            RankingEngine.setPriorMean(allSum / allCount);
+        }
+        return RankingEngine.getPriorMean();
+    }
+
+    // with the prior RankingEngine has now
+    double score(int i) {
+        return RankingEngine.score(sums[i], counts[i]);
+    }
+
+    ShardedRatingCounter.Totals totals(int i) {
+        return new ShardedRatingCounter.Totals(sums[i], counts[i]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.moviewatchlist;
+
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Rebuilds avgRating / totalRatings 4 every movie from the
+ per-user rating docs (movies/{id}/ratings/{uid}).
+ - one pass over the "ratings" collection group, PAGE_SIZE docs at a time,
+   only a sum and count per movie are kept in memory
+ - then each movie's shards are reset (shard 0 holds the totals)
+   and the averages and scores are written, in batches of up to 500 writes
+ - the mean over all ratings is stored in stats/ratings as the
+   ranking prior, and used 4 the scores written here
+ A maintenance job 4 when the shards are off, run by hand
+ (workflow_dispatch "reaggregate"). ratings made while it runs can be lost.
+*/
+class ReaggregateJob {
+
+    static final int PAGE_SIZE = 500;
+    private static final int MAX_BATCH_WRITES = 500;
+
+    private final Firestore db;
+
+    private RatingTotals totals;
+
+    ReaggregateJob(Firestore db) {
+        this.db = db;
+    }
+
+    /*
+     Returns the number of movies rebuilt.
+    */
+    int run() throws IOException {
+        totals = new RatingTotals();
+
+        Query query = db.collectionGroup(ShardedRatingCounter.RATINGS)
+                .orderBy(FieldPath.documentId())
+                .limit(PAGE_SIZE);
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(page.get()).getDocuments();
+            accumulate(docs);
+            if (docs.size() < PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        int rebuilt = totals.size();
+        writeTotals();
+        totals = null;
+        return rebuilt;
+    }
+
+    private void accumulate(List<QueryDocumentSnapshot> docs) {
+        for (QueryDocumentSnapshot doc : docs) {
+            Double stars = doc.getDouble(ShardedRatingCounter.FIELD_STARS);
+            DocumentReference movieRef = doc.getReference().getParent().getParent();
+            if (stars == null || movieRef == null) {
+                continue;
+            }
+
+            totals.add(movieRef.getId(), stars, 1);
+        }
+    }
+
+    private void writeTotals() throws IOException {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put(ShardedRatingCounter.FIELD_MEAN, totals.storePrior());
+        stats.put("count", totals.allCount());
+
+        WriteBatch batch = db.batch();
+        batch.set(db.collection(ShardedRatingCounter.STATS).document(ShardedRatingCounter.STATS_RATINGS), stats);
+        int writes = 1;
+
+        // shards + the movie doc, per movie
+        int writesPerMovie = ShardedRatingCounter.NUM_SHARDS + 1;
+
+        for (int i = 0; i < totals.size(); i++) {
+            if (writes + writesPerMovie > MAX_BATCH_WRITES) {
+                AdminRatingStore.await(batch.commit());
+                batch = db.batch();
+                writes = 0;
+            }
+
+            String movieId = totals.ids.get(i);
+            double sum = totals.sums[i];
+            long count = totals.counts[i];
+
+            for (int n = 0; n < ShardedRatingCounter.NUM_SHARDS; n++) {
+                Map<String, Object> shard = new HashMap<>();
+                shard.put(ShardedRatingCounter.FIELD_SUM, n == 0 ? sum : 0d);
+                shard.put(ShardedRatingCounter.FIELD_COUNT, n == 0 ? count : 0L);
+                batch.set(db.document(ShardedRatingCounter.shardRef(movieId, n)), shard);
+            }
+
+            Map<String, Object> fields = totals.totals(i).toMap();
+            fields.put(ShardedRatingCounter.FIELD_SHARDED, true); // the totals are in the shards now
+            batch.set(db.document(ShardedRatingCounter.movieRef(movieId)), fields, SetOptions.merge());
+
+            writes += writesPerMovie;
+        }
+        AdminRatingStore.await(batch.commit());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.moviewatchlist;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.SetOptions;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Rolls the rating shards up into movies/{id} (avgRating, totalRatings,
+ score and the title / poster of the newest rating) 4 the Top 10.
+ - only movies rated since the last run: the ratings collection group
+   by updatedAt, after stats/jobs.rollupAt, PAGE_SIZE docs at a time
+ - each movie is one transaction (ShardedRatingCounter.rollUp)
+ - rollupAt becomes the newest updatedAt read, not the clock: a rating
+   committed after the query has a later server time, so it is in the next run
+ - lagMillis() is how long the oldest of those ratings waited, i.e. how
+   stale the Top 10 order got (see RankingEngine)
+*/
+class RollupJob {
+
+    static final int PAGE_SIZE = 500;
+    static final String FIELD_ROLLUP_AT = "rollupAt";
+
+    private final Firestore db;
+    private final ShardedRatingCounter counter;
+
+    private long lagMillis;
+
+    RollupJob(Firestore db) {
+        this.db = db;
+        this.counter = new ShardedRatingCounter(new AdminRatingStore(db));
+    }
+
+    /*
+     Returns the number of movies rolled up.
+    */
+    int run() throws IOException {
+        DocumentReference state = db.collection(ShardedRatingCounter.STATS).document(Jobs.STATE);
+        DocumentSnapshot saved = AdminRatingStore.await(state.get());
+        Timestamp since = saved.exists() ? saved.getTimestamp(FIELD_ROLLUP_AT) : null;
+
+        // movieId -> title / poster of its newest rating
+        Map<String, Map<String, Object>> changed = new LinkedHashMap<>();
+        Timestamp newest = since;
+
+        Query query = db.collectionGroup(ShardedRatingCounter.RATINGS)
+                .orderBy(ShardedRatingCounter.FIELD_UPDATED_AT);
+        if (since != null) {
+            query = query.whereGreaterThan(ShardedRatingCounter.FIELD_UPDATED_AT, since);
+        }
+
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last).limit(PAGE_SIZE) : query.limit(PAGE_SIZE);
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(page.get()).getDocuments();
+            for (QueryDocumentSnapshot doc : docs) {
+                changed.put(doc.getReference().getParent().getParent().getId(), info(doc));
+                newest = doc.getTimestamp(ShardedRatingCounter.FIELD_UPDATED_AT);
+                if (lagMillis == 0 && newest != null) {
+                    lagMillis = System.currentTimeMillis() - newest.toDate().getTime();
+                }
+            }
+            if (docs.size() < PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+
+        counter.loadPriorMean();
+        for (Map.Entry<String, Map<String, Object>> e : changed.entrySet()) {
+            counter.rollUp(e.getKey(), e.getValue());
+        }
+
+        if (newest != null) {
+            AdminRatingStore.await(state.set(Collections.singletonMap(FIELD_ROLLUP_AT, newest), SetOptions.merge()));
+        }
+        return changed.size();
+    }
+
+    /*
+     Age of the oldest rating the last run() rolled up, 0 if none.
+    */
+    long lagMillis() {
+        return lagMillis;
+    }
+
+    // what the Top 10 shows of the movie, from a rating doc
+    private static Map<String, Object> info(DocumentSnapshot rating) {
+        Map<String, Object> info = new HashMap<>();
+        if (rating.getString("title") != null) {
+            info.put("title", rating.getString("title"));
+        }
+        if (rating.getString("posterUrl") != null) {
+            info.put("posterUrl", rating.getString("posterUrl"));
+        }
+        return info;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.moviewatchlist;
+
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ One shared ranking prior and a score on every movie.
+ - one pass over movies/ (only avgRating / totalRatings / score, PAGE_SIZE
+   docs at a time), the mean over all ratings is stored in stats/ratings.
+   the phones and rollup read it from there, so every score uses the same prior
+ - then each movie whose score is missing (rated before the scores) or
+   off (an older prior) gets it rewritten, in batches of up to 500 writes
+ runs once a day, rollup keeps the scores of rated movies up to date in between.
+*/
+class ScoresJob {
+
+    static final int PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_WRITES = 500;
+
+    // below this a score is left as it is
+    private static final double EPSILON = 1e-9;
+
+    private final Firestore db;
+
+    private RatingTotals totals;
+
+    // the stored score per movie of totals, NaN = none yet
+    private double[] scores;
+
+    ScoresJob(Firestore db) {
+        this.db = db;
+    }
+
+    /*
+     Returns the number of scores written.
+    */
+    int run() throws IOException {
+        read();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put(ShardedRatingCounter.FIELD_MEAN, totals.storePrior());
+        stats.put("count", totals.allCount());
+        AdminRatingStore.await(db.collection(ShardedRatingCounter.STATS)
+                .document(ShardedRatingCounter.STATS_RATINGS).set(stats));
+
+        return writeScores();
+    }
+
+    private void read() throws IOException {
+        totals = new RatingTotals();
+        scores = new double[PAGE_SIZE];
+        Query query = db.collection(ShardedRatingCounter.MOVIES)
+                .select(ShardedRatingCounter.FIELD_AVG_RATING, ShardedRatingCounter.FIELD_TOTAL_RATINGS,
+                        RankingEngine.FIELD_SCORE)
+                .orderBy(FieldPath.documentId())
+                .limit(PAGE_SIZE);
+
+        QueryDocumentSnapshot last = null;
+        while (true) {
+            Query page = last != null ? query.startAfter(last) : query;
+            List<QueryDocumentSnapshot> docs = AdminRatingStore.await(page.get()).getDocuments();
+            for (QueryDocumentSnapshot doc : docs) {
+                add(doc);
+            }
+            if (docs.size() < PAGE_SIZE) {
+                break;
+            }
+            last = docs.get(docs.size() - 1);
+        }
+    }
+
+    private void add(QueryDocumentSnapshot doc) {
+        long count = (long) ShardedRatingCounter.number(doc.get(ShardedRatingCounter.FIELD_TOTAL_RATINGS));
+        double sum = ShardedRatingCounter.number(doc.get(ShardedRatingCounter.FIELD_AVG_RATING)) * count;
+        int i = totals.add(doc.getId(), sum, count);
+
+        if (i == scores.length) {
+            scores = Arrays.copyOf(scores, i * 2);
+        }
+        Double score = doc.getDouble(RankingEngine.FIELD_SCORE);
+        scores[i] = score != null ? score : Double.NaN; // always written
+    }
+
+    private int writeScores() throws IOException {
+        WriteBatch batch = db.batch();
+        int writes = 0;
+        int written = 0;
+
+        for (int i = 0; i < totals.size(); i++) {
+            double score = totals.score(i);
+            if (Math.abs(score - scores[i]) < EPSILON) {
+                continue;
+            }
+            if (writes == MAX_BATCH_WRITES) {
+                AdminRatingStore.await(batch.commit());
+                batch = db.batch();
+                writes = 0;
+            }
+            batch.update(db.document(ShardedRatingCounter.movieRef(totals.ids.get(i))), RankingEngine.FIELD_SCORE, score);
+            writes++;
+            written++;
+        }
+        if (writes > 0) {
+            AdminRatingStore.await(batch.commit());
+        }
+        return written;
+    }
+}
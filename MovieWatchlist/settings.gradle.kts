@@ -21,3 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "MovieWatchlist"
 include(":app")
+include(":benchmark")
+include(":baselineprofile")
+include(":jobs")